@@ -4,11 +4,35 @@ import edu.princeton.cs.algs4.StdOut;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 public class FastCollinearPoints {
+    // HASH needs every coordinate strictly inside (-2^30, 2^30), so that differences
+    // stay strictly inside (-2^31, 2^31) and never overflow to Integer.MIN_VALUE
+    private static final int HASH_LIMIT = 1 << 30;
+
     private final LineSegment[] segments;
 
+    // SORT sorts all points by exact slope around each anchor, O(n^2 log n);
+    // HASH buckets them by exact reduced direction in a hash table, expected O(n^2)
+    public enum Engine { SORT, HASH }
+
     public FastCollinearPoints(Point[] points) {
+        this(points, Engine.SORT);
+    }
+
+    public FastCollinearPoints(Point[] points, Engine engine) {
+        this(points, engine, false);
+    }
+
+    // in parallel mode the anchors are split into contiguous chunks run on the
+    // common ForkJoinPool, each with its own scratch array or table; the chunks'
+    // segments are concatenated in anchor order, so the result is identical to
+    // the sequential one
+    public FastCollinearPoints(Point[] points, Engine engine, boolean parallel) {
         if (points == null)
             throw new IllegalArgumentException("Input is null.");
         for (int i = 0; i < points.length; i++) {
@@ -25,17 +49,39 @@ public class FastCollinearPoints {
                     throw new IllegalArgumentException("Input contains duplicate.");
             }
         }
-        ArrayList<LineSegment> res = new ArrayList<LineSegment>();
+        boolean hash = engine == Engine.HASH && fitsHash(localPoints);
+        int n = localPoints.length;
 
-        if (localPoints.length > 3) {
-            Point[] temp = localPoints.clone();
-            for (Point p : localPoints) {
-                Arrays.sort(temp, p.slopeOrder());
-                findSegments(temp, p, res);
-            }
+        if (n <= 3) {
+            segments = new LineSegment[0];
+        }
+        else if (!parallel) {
+            segments = anchorSegments(localPoints, 0, n, hash).toArray(new LineSegment[0]);
         }
+        else {
+            int chunks = Math.min(n, 8 * ForkJoinPool.getCommonPoolParallelism());
+            List<ArrayList<LineSegment>> parts = IntStream.range(0, chunks).parallel()
+                    .mapToObj(c -> anchorSegments(localPoints, (int) ((long) n * c / chunks),
+                                                  (int) ((long) n * (c + 1) / chunks), hash))
+                    .collect(Collectors.toList());
+            ArrayList<LineSegment> res = new ArrayList<LineSegment>();
+            for (ArrayList<LineSegment> part : parts)
+                res.addAll(part);
+            segments = res.toArray(new LineSegment[res.size()]);
+        }
+    }
 
-        segments = res.toArray(new LineSegment[res.size()]);
+    // segments whose lowest point is one of the anchors points[lo .. hi - 1], using
+    // scratch space private to this call
+    private static ArrayList<LineSegment> anchorSegments(Point[] points, int lo, int hi, boolean hash) {
+        ArrayList<LineSegment> res = new ArrayList<LineSegment>();
+        if (hash) {
+            hashSegments(points, lo, hi, res);
+        }
+        else {
+            sortSegments(points, lo, hi, res);
+        }
+        return res;
     }
 
     public int numberOfSegments() {
@@ -46,48 +92,213 @@ public class FastCollinearPoints {
         return segments.clone();
     }
 
-    private void findSegments(Point[] points, Point p, ArrayList<LineSegment> res) {
-        int start = 1;
-        double slop = p.slopeTo(points[1]);
-
-        for (int i = 2; i < points.length; i++) {
-            double tempSlop = p.slopeTo(points[i]);
-            if (!collinearSlop(tempSlop, slop)) {
-                if (i - start >= 3) {
-                    Point[] ls = genSegment(points, p, start, i);
-                    if (ls[0].compareTo(p) == 0) {
-                        res.add(new LineSegment(ls[0], ls[1]));
+    // For each anchor i (points in natural order), precompute the displacement of
+    // every point into dx/dy and sort the other points' indices by exact slope
+    // (Point.compareSlopes), so the sort touches only primitive arrays. A run of
+    // 3 or more equal slopes is a segment when the anchor is its lowest point,
+    // that is, when every index in the run is above i.
+    private static void sortSegments(Point[] points, int lo, int hi, ArrayList<LineSegment> res) {
+        int n = points.length;
+        long[] dx = new long[n];
+        long[] dy = new long[n];
+        int[] index = new int[n - 1];
+        int[] aux = new int[n - 1];
+        for (int i = lo; i < Math.min(hi, n - 3); i++) {
+            Point p = points[i];
+            for (int j = 0, k = 0; j < n; j++) {
+                dx[j] = (long) points[j].x() - p.x();
+                dy[j] = (long) points[j].y() - p.y();
+                if (j != i)
+                    index[k++] = j;
+            }
+            sortBySlope(index, aux, dx, dy, 0, n - 1);
+
+            int start = 0;
+            for (int k = 1; k <= n - 1; k++) {
+                if (k < n - 1 && Point.compareSlopes(dx[index[start]], dy[index[start]],
+                                                     dx[index[k]], dy[index[k]]) == 0)
+                    continue;
+                if (k - start >= 3) {
+                    int min = index[start];
+                    int max = index[start];
+                    for (int m = start + 1; m < k; m++) {
+                        min = Math.min(min, index[m]);
+                        max = Math.max(max, index[m]);
                     }
+                    if (min > i)
+                        res.add(new LineSegment(p, points[max]));
                 }
-                start = i;
-                slop = tempSlop;
+                start = k;
             }
         }
-        if (points.length - start >= 3) {
-            Point[] lastPoints = genSegment(points, p, start, points.length);
-            if (lastPoints[0].compareTo(p) == 0) {
-                res.add(new LineSegment(lastPoints[0], lastPoints[1]));
+    }
+
+    // merge sort of index[lo .. hi - 1] by the slope of (dx, dy), with insertion
+    // sort for short ranges
+    private static void sortBySlope(int[] index, int[] aux, long[] dx, long[] dy, int lo, int hi) {
+        if (hi - lo <= 16) {
+            for (int i = lo + 1; i < hi; i++) {
+                int v = index[i];
+                int j = i;
+                while (j > lo && Point.compareSlopes(dx[v], dy[v], dx[index[j - 1]], dy[index[j - 1]]) < 0) {
+                    index[j] = index[j - 1];
+                    j--;
+                }
+                index[j] = v;
             }
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        sortBySlope(index, aux, dx, dy, lo, mid);
+        sortBySlope(index, aux, dx, dy, mid, hi);
+        int a = index[mid - 1];
+        int b = index[mid];
+        if (Point.compareSlopes(dx[a], dy[a], dx[b], dy[b]) <= 0)
+            return;
+        System.arraycopy(index, lo, aux, lo, hi - lo);
+        for (int k = lo, i = lo, j = mid; k < hi; k++) {
+            if (i == mid)
+                index[k] = aux[j++];
+            else if (j == hi)
+                index[k] = aux[i++];
+            else if (Point.compareSlopes(dx[aux[j]], dy[aux[j]], dx[aux[i]], dy[aux[i]]) < 0)
+                index[k] = aux[j++];
+            else
+                index[k] = aux[i++];
         }
     }
 
-    private boolean collinearSlop(double tempSlop, double slop) {
-        if (Double.compare(slop, tempSlop) == 0)
-            return true;
-        return false;
+    private static boolean fitsHash(Point[] points) {
+        for (Point p : points) {
+            // no Math.abs: it leaves Integer.MIN_VALUE negative
+            if (p.x() <= -HASH_LIMIT || p.x() >= HASH_LIMIT || p.y() <= -HASH_LIMIT || p.y() >= HASH_LIMIT)
+                return false;
+        }
+        return true;
     }
 
-    private Point[] genSegment(Point[] points, Point p, int start, int end) {
-        ArrayList<Point> temp = new ArrayList<>();
-        temp.add(p);
-        for (int i = start; i < end; i++) {
-            temp.add(points[i]);
+    // For each anchor i (points in natural order), bucket every other point by the
+    // direction from the anchor reduced by the gcd, oriented so that later points
+    // need no flip: a point before i lies on the flipped side of the same key.
+    // A bucket holding an earlier point is blocked (i is not the segment's lowest
+    // point), so each maximal segment is reported once, from its lowest point to
+    // the highest-index point in its bucket.
+    private static void hashSegments(Point[] points, int lo, int hi, ArrayList<LineSegment> res) {
+        int n = points.length;
+        SlopeTable table = new SlopeTable(n);
+        for (int i = lo; i < Math.min(hi, n - 3); i++) {
+            Point p = points[i];
+            table.clear();
+            for (int j = 0; j < n; j++) {
+                if (j == i)
+                    continue;
+                int dx = points[j].x() - p.x();
+                int dy = points[j].y() - p.y();
+                int g = gcd(Math.abs(dx), Math.abs(dy));
+                dx /= g;
+                dy /= g;
+                if (j < i)
+                    table.block(key(-dx, -dy));
+                else
+                    table.add(key(dx, dy), j);
+            }
+            for (int slot = 0; slot < table.keys.length; slot++) {
+                if (table.keys[slot] != 0 && table.count[slot] >= 3)
+                    res.add(new LineSegment(p, points[table.last[slot]]));
+            }
+        }
+    }
+
+    // never 0 for distinct points, so 0 marks an empty slot
+    private static long key(int dx, int dy) {
+        return (long) dx << 32 | (dy & 0xFFFFFFFFL);
+    }
+
+    // binary gcd of two non-negative ints, not both zero
+    private static int gcd(int a, int b) {
+        if (a == 0)
+            return b;
+        if (b == 0)
+            return a;
+        int shift = Integer.numberOfTrailingZeros(a | b);
+        a >>= Integer.numberOfTrailingZeros(a);
+        while (b != 0) {
+            b >>= Integer.numberOfTrailingZeros(b);
+            if (a > b) {
+                int t = a;
+                a = b;
+                b = t;
+            }
+            b -= a;
+        }
+        return a << shift;
+    }
+
+    // Open-addressing table from direction key to the number of later points in
+    // that direction and the last of them; count -1 marks a blocked direction.
+    // Sized for one anchor's n - 1 keys at load factor at most 1/2, and reused.
+    private static final class SlopeTable {
+        private final long[] keys;
+        private final int[] count;
+        private final int[] last;
+        private final int shift;
+
+        SlopeTable(int n) {
+            int capacity = Integer.highestOneBit(Math.max(2, n - 1)) << 2;
+            keys = new long[capacity];
+            count = new int[capacity];
+            last = new int[capacity];
+            shift = 64 - Integer.numberOfTrailingZeros(capacity);
+        }
+
+        void clear() {
+            Arrays.fill(keys, 0L);
+        }
+
+        private int slot(long key) {
+            int mask = keys.length - 1;
+            int i = (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+            while (keys[i] != 0 && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            if (keys[i] == 0) {
+                keys[i] = key;
+                count[i] = 0;
+            }
+            return i;
+        }
+
+        void block(long key) {
+            count[slot(key)] = -1;
+        }
+
+        void add(long key, int index) {
+            int i = slot(key);
+            if (count[i] >= 0) {
+                count[i]++;
+                last[i] = index;
+            }
         }
-        temp.sort(null);
-        return new Point[] { temp.get(0), temp.get(temp.size() - 1) };
     }
 
     public static void main(String[] args) {
+        if (args.length == 0) {
+            // coordinates at the HASH limits must fall back to SORT rather than overflow
+            int[] edges = { -(1 << 30), 1 << 30, Integer.MIN_VALUE, Integer.MAX_VALUE };
+            for (int edge : edges) {
+                Point[] line = {
+                        new Point(edge, 0), new Point(edge / 2, 0), new Point(0, 0), new Point(7, 0),
+                        new Point(0, 2)
+                };
+                StdOut.println(edge + ": " + new FastCollinearPoints(line, Engine.HASH).numberOfSegments()
+                                       + " " + new FastCollinearPoints(line, Engine.SORT).numberOfSegments());
+            }
+            Point[] reported = {
+                    new Point(-(1 << 30), 0), new Point(1 << 30, 0), new Point(1 << 30, 1), new Point(0, 2)
+            };
+            StdOut.println(new FastCollinearPoints(reported, Engine.HASH).numberOfSegments());
+            return;
+        }
         In in = new In(args[0]);
         int n = in.readInt();
         Point[] points = new Point[n];
@@ -105,7 +316,9 @@ public class FastCollinearPoints {
         }
         StdDraw.show();
 
-        FastCollinearPoints collinear = new FastCollinearPoints(points);
+        Engine engine = args.length > 1 ? Engine.valueOf(args[1]) : Engine.SORT;
+        boolean parallel = args.length > 2 && args[2].equals("parallel");
+        FastCollinearPoints collinear = new FastCollinearPoints(points, engine, parallel);
         for (LineSegment segment : collinear.segments()) {
             StdOut.println(segment);
             segment.draw();
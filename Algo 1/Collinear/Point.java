@@ -16,6 +16,7 @@ public class Point implements Comparable<Point> {
 
     private final int x;     // x-coordinate of this point
     private final int y;     // y-coordinate of this point
+    private Comparator<Point> slopeOrder;   // created on first use, then reused
 
     /**
      * Initializes a new point.
@@ -29,6 +30,24 @@ public class Point implements Comparable<Point> {
         this.y = y;
     }
 
+    /**
+     * Returns the <em>x</em>-coordinate, for the collinear-points engines.
+     *
+     * @return the <em>x</em>-coordinate of this point
+     */
+    int x() {
+        return x;
+    }
+
+    /**
+     * Returns the <em>y</em>-coordinate, for the collinear-points engines.
+     *
+     * @return the <em>y</em>-coordinate of this point
+     */
+    int y() {
+        return y;
+    }
+
     /**
      * Draws this point to standard draw.
      */
@@ -96,14 +115,47 @@ public class Point implements Comparable<Point> {
      */
     public Comparator<Point> slopeOrder() {
         /* YOUR CODE HERE */
-        return new Comparator<Point>() {
-
-            public int compare(Point o1, Point o2) {
-                if (slopeTo(o1) < slopeTo(o2)) return -1;
-                if (slopeTo(o1) > slopeTo(o2)) return +1;
-                return 0;
-            }
-        };
+        if (slopeOrder == null) {
+            slopeOrder = new Comparator<Point>() {
+
+                public int compare(Point o1, Point o2) {
+                    return compareSlopes((long) o1.x - x, (long) o1.y - y, (long) o2.x - x, (long) o2.y - y);
+                }
+            };
+        }
+        return slopeOrder;
+    }
+
+    /**
+     * Compares the slopes of two displacements exactly, in the order slopeTo()
+     * uses: (0, 0) first, then finite slopes in increasing order, then vertical.
+     * Finite slopes dy1 / dx1 and dy2 / dx2 are compared by cross-multiplying
+     * as 128-bit products, so no division and no rounding is involved.
+     *
+     * @param dx1 the <em>x</em>-displacement of the first point
+     * @param dy1 the <em>y</em>-displacement of the first point
+     * @param dx2 the <em>x</em>-displacement of the second point
+     * @param dy2 the <em>y</em>-displacement of the second point
+     * @return a negative integer, zero, or a positive integer as the first
+     * slope is less than, equal to, or greater than the second
+     */
+    static int compareSlopes(long dx1, long dy1, long dx2, long dy2) {
+        int kind1 = dx1 != 0 ? 1 : dy1 != 0 ? 2 : 0;
+        int kind2 = dx2 != 0 ? 1 : dy2 != 0 ? 2 : 0;
+        if (kind1 != kind2) return Integer.compare(kind1, kind2);
+        if (kind1 != 1) return 0;
+        if (dx1 < 0) {
+            dx1 = -dx1;
+            dy1 = -dy1;
+        }
+        if (dx2 < 0) {
+            dx2 = -dx2;
+            dy2 = -dy2;
+        }
+        long high1 = Math.multiplyHigh(dy1, dx2);
+        long high2 = Math.multiplyHigh(dy2, dx1);
+        if (high1 != high2) return Long.compare(high1, high2);
+        return Long.compareUnsigned(dy1 * dx2, dy2 * dx1);
     }
 
 
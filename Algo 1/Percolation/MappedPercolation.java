@@ -0,0 +1,294 @@
+ import edu.princeton.cs.algs4.StdOut;
+
+ import java.io.IOException;
+ import java.io.UncheckedIOException;
+ import java.nio.ByteOrder;
+ import java.nio.MappedByteBuffer;
+ import java.nio.channels.FileChannel;
+ import java.nio.file.Files;
+ import java.nio.file.Path;
+ import java.nio.file.StandardOpenOption;
+ import java.util.SplittableRandom;
+
+ // n-by-n Percolation kept off the heap, in a memory-mapped file, for lattices far
+ // beyond what int indices and heap arrays allow (10^10 sites and more). Sites
+ // are addressed by long linear index (row - 1) * n + (col - 1), and the whole
+ // state is one long per site in the file:
+ //
+ //   0          the site is blocked
+ //   p + 1 > 0  the site is open and its union-find parent is p
+ //   ~meta < 0  the site is open and a root; meta = rank << 2 | bottom << 1 | top
+ //
+ // Blocked being 0 means a fresh (sparse) file needs no initialization, and the
+ // OS only backs the pages that are actually touched. The file is mapped in 1 GB
+ // pages, since one MappedByteBuffer cannot exceed 2 GB; the heap only holds the
+ // page table.
+ public class MappedPercolation implements AutoCloseable {
+
+     private static final int PAGE_SHIFT = 27;                  // 2^27 longs = 1 GB per page
+     private static final long PAGE_MASK = (1L << PAGE_SHIFT) - 1;
+     private static final long TOP = 1;
+     private static final long BOTTOM = 2;
+
+     private final long size;
+     private final long sites;
+     private final Path file;
+     private final boolean temporary;
+     private final FileChannel channel;
+     private final MappedByteBuffer[] pages;
+     private long openSites;
+     private boolean percolates;
+
+     // creates n-by-n grid, with all sites initially blocked, in a temporary file
+     // that is deleted on close()
+     public MappedPercolation(long n) {
+         this(n, null);
+     }
+
+     // creates n-by-n grid, with all sites initially blocked, backed by the given
+     // file (which must not exist yet)
+     public MappedPercolation(long n, Path file) {
+         if (n <= 0 || n > 3037000499L) {
+             throw new IllegalArgumentException("Grid side must be in 1 .. 3037000499");
+         }
+         size = n;
+         sites = n * n;
+         long pageCount = ((sites - 1) >>> PAGE_SHIFT) + 1;
+         if (pageCount > Integer.MAX_VALUE) {
+             throw new IllegalArgumentException("Grid is too large to map");
+         }
+         temporary = file == null;
+         Path created = null;            // the file this constructor made, removed again on failure
+         FileChannel opened = null;
+         try {
+             if (temporary) {
+                 created = Files.createTempFile("percolation", ".grid");
+                 opened = FileChannel.open(created, StandardOpenOption.READ, StandardOpenOption.WRITE);
+             }
+             else {
+                 opened = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                                           StandardOpenOption.CREATE_NEW, StandardOpenOption.SPARSE);
+                 created = file;
+             }
+             MappedByteBuffer[] mapped = new MappedByteBuffer[(int) pageCount];
+             for (int i = 0; i < mapped.length; i++) {
+                 long first = (long) i << PAGE_SHIFT;
+                 long longs = Math.min(1L << PAGE_SHIFT, sites - first);
+                 mapped[i] = opened.map(FileChannel.MapMode.READ_WRITE, first << 3, longs << 3);
+                 mapped[i].order(ByteOrder.nativeOrder());
+             }
+             pages = mapped;
+         }
+         catch (IOException | RuntimeException e) {
+             cleanUp(opened, created, e);
+             throw e instanceof IOException ? new UncheckedIOException((IOException) e) : (RuntimeException) e;
+         }
+         this.file = created;
+         channel = opened;
+     }
+
+     // closes the channel and deletes the file after a failed constructor, keeping
+     // any secondary failure attached to the original one
+     private static void cleanUp(FileChannel opened, Path created, Exception e) {
+         try {
+             if (opened != null) {
+                 opened.close();
+             }
+             if (created != null) {
+                 Files.deleteIfExists(created);
+             }
+         }
+         catch (IOException suppressed) {
+             e.addSuppressed(suppressed);
+         }
+     }
+
+     // opens the site (row, col) if it is not open already
+     public void open(long row, long col) {
+         checkException(row, col);
+         openSite(getSiteIndex(row, col));
+     }
+
+     // opens the site with 0-based linear index; unchecked
+     void openSite(long site) {
+         if (get(site) != 0) {
+             return;
+         }
+         long meta = 0;
+         if (site < size) {
+             meta |= TOP;
+         }
+         if (site >= sites - size) {
+             meta |= BOTTOM;
+         }
+         set(site, ~meta);
+         ++openSites;
+         if (meta == (TOP | BOTTOM)) {
+             percolates = true;
+         }
+
+         long col = site % size;
+         if (site >= size && get(site - size) != 0) {
+             union(site, site - size);
+         }
+         if (site < sites - size && get(site + size) != 0) {
+             union(site, site + size);
+         }
+         if (col > 0 && get(site - 1) != 0) {
+             union(site, site - 1);
+         }
+         if (col < size - 1 && get(site + 1) != 0) {
+             union(site, site + 1);
+         }
+     }
+
+     // is the site (row, col) open?
+     public boolean isOpen(long row, long col) {
+         checkException(row, col);
+         return get(getSiteIndex(row, col)) != 0;
+     }
+
+     // is the site (row, col) full?
+     public boolean isFull(long row, long col) {
+         checkException(row, col);
+         long site = getSiteIndex(row, col);
+         return get(site) != 0 && (~get(find(site)) & TOP) != 0;
+     }
+
+     // returns the number of open sites
+     public long numberOfOpenSites() {
+         return openSites;
+     }
+
+     // does the system percolate?
+     public boolean percolates() {
+         return percolates;
+     }
+
+     // closes the backing file, deleting it if it was temporary; the mappings
+     // themselves are released once this object is unreachable
+     public void close() {
+         try {
+             channel.close();
+             if (temporary) {
+                 Files.deleteIfExists(file);
+             }
+         }
+         catch (IOException e) {
+             throw new UncheckedIOException(e);
+         }
+     }
+
+     private void checkException(long row, long col) {
+         if (row <= 0 || row > size || col <= 0 || col > size) {
+             throw new IllegalArgumentException();
+         }
+     }
+
+     private long getSiteIndex(long row, long col) {
+         return size * (row - 1) + (col - 1);
+     }
+
+     private long get(long site) {
+         return pages[(int) (site >>> PAGE_SHIFT)].getLong((int) (site & PAGE_MASK) << 3);
+     }
+
+     private void set(long site, long value) {
+         pages[(int) (site >>> PAGE_SHIFT)].putLong((int) (site & PAGE_MASK) << 3, value);
+     }
+
+     // Root of the open site p, pointing every other node on the path at its grandparent
+     private long find(long p) {
+         long q;
+         while ((q = get(p)) > 0) {
+             q -= 1;
+             long r = get(q);
+             if (r < 0) {
+                 return q;
+             }
+             set(p, r);
+             p = r - 1;
+         }
+         return p;
+     }
+
+     // Links the roots of two open sites by rank, merging their top/bottom flags
+     private void union(long p, long q) {
+         long rootP = find(p);
+         long rootQ = find(q);
+         if (rootP == rootQ) {
+             return;
+         }
+         long metaP = ~get(rootP);
+         long metaQ = ~get(rootQ);
+         if ((metaP >>> 2) < (metaQ >>> 2)) {
+             long swap = rootP;
+             rootP = rootQ;
+             rootQ = swap;
+             swap = metaP;
+             metaP = metaQ;
+             metaQ = swap;
+         }
+         else if ((metaP >>> 2) == (metaQ >>> 2)) {
+             metaP += 1 << 2;
+         }
+         metaP |= metaQ & (TOP | BOTTOM);
+         set(rootQ, rootP + 1);
+         set(rootP, ~metaP);
+         if ((metaP & (TOP | BOTTOM)) == (TOP | BOTTOM)) {
+             percolates = true;
+         }
+     }
+
+     // test client: cross-check against Percolation, then time one large lattice
+     public static void main(String[] args) {
+         SplittableRandom random = new SplittableRandom(1);
+         for (int trial = 0; trial < 20; trial++) {
+             int n = 1 + random.nextInt(40);
+             Percolation heap = new Percolation(n);
+             try (MappedPercolation mapped = new MappedPercolation(n)) {
+                 for (int k = 0; k < n * n; k++) {
+                     int row = 1 + random.nextInt(n);
+                     int col = 1 + random.nextInt(n);
+                     heap.open(row, col);
+                     mapped.open(row, col);
+                     int r = 1 + random.nextInt(n);
+                     int c = 1 + random.nextInt(n);
+                     if (heap.isFull(r, c) != mapped.isFull(r, c)
+                             || heap.percolates() != mapped.percolates()
+                             || heap.numberOfOpenSites() != mapped.numberOfOpenSites()) {
+                         throw new IllegalStateException("Mismatch at n = " + n);
+                     }
+                 }
+             }
+         }
+         StdOut.println("ok");
+
+         // a failed constructor must not leave its file behind
+         try {
+             Path taken = Files.createTempFile("percolation", ".grid");
+             try {
+                 new MappedPercolation(4, taken).close();
+                 StdOut.println("opened an existing file");
+             }
+             catch (UncheckedIOException e) {
+                 StdOut.println("existing file kept: " + Files.exists(taken));
+             }
+             Files.delete(taken);
+         }
+         catch (IOException e) {
+             throw new UncheckedIOException(e);
+         }
+
+         long n = args.length > 0 ? Long.parseLong(args[0]) : 4000;
+         long start = System.nanoTime();
+         try (MappedPercolation mapped = new MappedPercolation(n)) {
+             while (!mapped.percolates()) {
+                 mapped.openSite(random.nextLong(n * n));
+             }
+             StdOut.printf("n = %d: threshold ~ %.4f in %.1f s%n", n,
+                           (double) mapped.numberOfOpenSites() / (n * n),
+                           (System.nanoTime() - start) / 1e9);
+         }
+     }
+ }
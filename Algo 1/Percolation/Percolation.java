@@ -4,16 +4,12 @@
   *  Last modified:     25/09/2025
   **************************************************************************** */
 
- import edu.princeton.cs.algs4.WeightedQuickUnionUF;
+ import java.nio.file.Path;
 
  public class Percolation {
 
-     private static final int TOP = 0;
-     private final boolean[][] opened;
      private final int size;
-     private final int bottom;
-     private int openSites;
-     private final WeightedQuickUnionUF qf;
+     private final SitePercolation grid;     // the engine, on a 4-neighbor square lattice
 
      // creates n-by-n grid, with all sites initially blocked
      public Percolation(int n) {
@@ -22,44 +18,42 @@
          }
 
          size = n;
-         bottom = size * size + 1;
-         qf = new WeightedQuickUnionUF(size * size + 2);
-         opened = new boolean[size][size];
-         openSites = 0;
+         grid = new SitePercolation(new Topology.Square(n, n, false));
      }
 
-     // opens the site (row, col) if it is not open already
-     public void open(int row, int col) {
-         checkException(row, col);
-         opened[row - 1][col - 1] = true;
-         ++openSites;
-
-         // Edge Case => If any of the top row boxes are opened => Union(box, top)
-         if (row == 1) {
-             qf.union(getQuickFindIndex(row, col), TOP);
+     // creates n-by-n grid whose open sites are read from a mask file, one bit or one
+     // byte per site in row-major order (see SitePercolation)
+     public Percolation(int n, Path mask) {
+         if (n <= 0) {
+             throw new IllegalArgumentException();
          }
 
-         // Edge Case => If any of the bottom row boxes are opened => Union(box, bottom)
-         if (row == size) {
-             qf.union(getQuickFindIndex(row, col), bottom);
-         }
+         size = n;
+         grid = new SitePercolation(new Topology.Square(n, n, false), mask);
+     }
 
-         // If any of the boxes in the middle rows (expect top and bottom) are opened then check for neighbouring unions
-         if (row > 1 && isOpen(row - 1, col)) {
-             qf.union(getQuickFindIndex(row, col), getQuickFindIndex(row - 1, col));
-         }
+     // opens the site (row, col) if it is not open already
+     public void open(int row, int col) {
+         checkException(row, col);
+         grid.openSite(getSiteIndex(row, col));
+     }
 
-         if (row < size && isOpen(row + 1, col)) {
-             qf.union(getQuickFindIndex(row, col), getQuickFindIndex(row + 1, col));
-         }
+     // opens the site with 0-based linear index (row - 1) * n + (col - 1) if it is not
+     // open already; unchecked, for callers such as PercolationStats that generate
+     // valid indices themselves
+     void openSite(int site) {
+         grid.openSite(site);
+     }
 
-         if (col > 1 && isOpen(row, col - 1)) {
-             qf.union(getQuickFindIndex(row, col), getQuickFindIndex(row, col - 1));
-         }
+     // opens every site with the listed 0-based linear indices (row - 1) * n + (col - 1);
+     // all indices are checked once, before any site is opened
+     public void openAll(int[] linearIndices) {
+         grid.openAll(linearIndices);
+     }
 
-         if (col < size && isOpen(row, col + 1)) {
-             qf.union(getQuickFindIndex(row, col), getQuickFindIndex(row, col + 1));
-         }
+     // blocks every site again, so one instance can be reused across trials without reallocating
+     void clear() {
+         grid.clear();
      }
 
      // Check Illegal Argument Exception
@@ -72,31 +66,49 @@
      // is the site (row, col) open?
      public boolean isOpen(int row, int col) {
          checkException(row, col);
-         return opened[row - 1][col - 1];
+         return grid.isOpen(getSiteIndex(row, col));
      }
 
      // returns the number of open sites
      public int numberOfOpenSites() {
-         return openSites;
+         return grid.numberOfOpenSites();
      }
 
      // is the site (row, col) full?
      public boolean isFull(int row, int col) {
-         if ((row > 0 && row <= size) && (col > 0 && col <= size)) {
-             return qf.find(TOP) == qf.find(getQuickFindIndex(row, col));
-         }
-         else throw new IllegalArgumentException();
+         checkException(row, col);
+         return grid.isFull(getSiteIndex(row, col));
      }
 
-     // Retrieves index of the box from matrix
-     private int getQuickFindIndex(int row, int col) {
-         return size * (row - 1) + col;
+     // Retrieves the 0-based linear index of the box in the grid
+     private int getSiteIndex(int row, int col) {
+         return size * (row - 1) + (col - 1);
      }
 
 
      // does the system percolate?
      public boolean percolates() {
-         return qf.find(TOP) == qf.find(bottom);
+         return grid.percolates();
+     }
+
+     // the number of open sites at the moment the system first percolated, or -1 if it has not
+     public int openSitesAtPercolation() {
+         return grid.openSitesAtPercolation();
+     }
+
+     // the number of sites in the largest cluster of open sites
+     public int largestCluster() {
+         return grid.largestCluster();
+     }
+
+     // the number of clusters with exactly the given number of sites
+     public int clusterCount(int clusterSites) {
+         return grid.clusterCount(clusterSites);
+     }
+
+     // records every subsequent open, merge and percolate into log (null to stop)
+     public void setEventLog(PercolationEventLog log) {
+         grid.setEventLog(log);
      }
 
      // test client (optional)
@@ -0,0 +1,117 @@
+ import edu.princeton.cs.algs4.StdOut;
+
+ import java.io.BufferedOutputStream;
+ import java.io.DataOutputStream;
+ import java.io.IOException;
+ import java.io.UncheckedIOException;
+ import java.nio.file.Files;
+ import java.nio.file.Path;
+
+ // Fixed-capacity ring buffer of SitePercolation events, each packed into one long
+ // so recording never allocates. Once full, the oldest events are overwritten.
+ //
+ //   OPEN       type << 62 | site
+ //   MERGE      type << 62 | winner root << 31 | absorbed root
+ //   PERCOLATE  type << 62 | number of open sites at that moment
+ public class PercolationEventLog {
+
+     public static final int OPEN = 0;
+     public static final int MERGE = 1;
+     public static final int PERCOLATE = 2;
+
+     private static final long LOW = (1L << 31) - 1;
+
+     private final long[] events;
+     private final int mask;
+     private long recorded;          // total events ever recorded
+
+     // construct a log holding at least the given number of most recent events (rounded up to a power of two)
+     public PercolationEventLog(int capacity) {
+         if (capacity <= 0 || capacity > 1 << 30) {
+             throw new IllegalArgumentException("Capacity must be in 1 .. 2^30");
+         }
+         int size = Integer.highestOneBit(capacity);
+         if (size < capacity) {
+             size *= 2;
+         }
+         events = new long[size];
+         mask = size - 1;
+     }
+
+     void open(int site) {
+         events[(int) (recorded++ & mask)] = site;
+     }
+
+     void merge(int winner, int absorbed) {
+         events[(int) (recorded++ & mask)] = (long) MERGE << 62 | (long) winner << 31 | absorbed;
+     }
+
+     void percolate(int openSites) {
+         events[(int) (recorded++ & mask)] = (long) PERCOLATE << 62 | openSites;
+     }
+
+     // the number of events currently held
+     public int size() {
+         return (int) Math.min(recorded, events.length);
+     }
+
+     // the total number of events recorded, including overwritten ones
+     public long recorded() {
+         return recorded;
+     }
+
+     // the i-th oldest event still held
+     public long get(int i) {
+         if (i < 0 || i >= size()) {
+             throw new IllegalArgumentException("Index out of range.");
+         }
+         return events[(int) ((recorded - size() + i) & mask)];
+     }
+
+     // forget every event
+     public void clear() {
+         recorded = 0;
+     }
+
+     // OPEN, MERGE or PERCOLATE
+     public static int type(long event) {
+         return (int) (event >>> 62);
+     }
+
+     // the opened site, the winner root of a merge, or the open count at percolation
+     public static int first(long event) {
+         return type(event) == MERGE ? (int) (event >>> 31 & LOW) : (int) (event & LOW);
+     }
+
+     // the absorbed root of a merge
+     public static int second(long event) {
+         return (int) (event & LOW);
+     }
+
+     // write the held events, oldest first, as big-endian longs
+     public void writeTo(Path file) {
+         try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+             for (int i = 0, n = size(); i < n; i++) {
+                 out.writeLong(get(i));
+             }
+         }
+         catch (IOException e) {
+             throw new UncheckedIOException(e);
+         }
+     }
+
+     // unit testing
+     public static void main(String[] args) {
+         PercolationEventLog log = new PercolationEventLog(4);
+         SitePercolation sp = new SitePercolation(new Topology.Square(1, 3, false));
+         sp.setEventLog(log);
+         sp.open(0);
+         sp.open(2);
+         sp.open(1);
+         for (int i = 0; i < log.size(); i++) {
+             long e = log.get(i);
+             StdOut.println(type(e) + " " + first(e) + " " + second(e));
+         }
+         StdOut.println(log.recorded());
+     }
+ }
@@ -6,46 +6,189 @@
 
  import edu.princeton.cs.algs4.StdOut;
  import edu.princeton.cs.algs4.StdRandom;
- import edu.princeton.cs.algs4.StdStats;
+
+ import java.util.SplittableRandom;
+ import java.util.concurrent.ConcurrentLinkedQueue;
+ import java.util.stream.IntStream;
 
  public class PercolationStats {
 
      private static final double CONFIDENCE_95 = 1.96;
-     private final int experimentsCount;
-     private final double[] fractions;
+     private static final int BATCH = 64;    // trials run in parallel between checks; fixed so runs are reproducible
+
+     // how each trial chooses the next site to open
+     public enum Method {
+         // draw random sites and skip the ones already open
+         REJECTION,
+         // open sites in the order of a random permutation, shuffled lazily, so no draw is wasted
+         PERMUTATION,
+         // the same permutation trials as PERMUTATION (identical results for a seed), but
+         // run on grids and order buffers reused from a pool instead of allocated per trial
+         SWEEP
+     }
+
+     // receives the running estimate after every batch of trials
+     public interface Progress {
+         void update(PercolationStats running);
+     }
+
+     // running mean and sum of squared deviations (Welford), so memory stays O(1) in T
+     private int experimentsCount;
+     private double mean;
+     private double m2;
 
 
      // perform independent trials on an n-by-n grid
      public PercolationStats(int n, int t) {
+         this(n, t, StdRandom.uniformLong(Long.MAX_VALUE));
+     }
+
+     // perform independent trials on an n-by-n grid, spread over the common ForkJoinPool;
+     // trial k draws from its own SplittableRandom derived from (seed, k), so results
+     // depend only on the seed and not on how trials are scheduled
+     public PercolationStats(int n, int t, long seed) {
+         this(n, t, seed, Method.REJECTION);
+     }
+
+     // perform independent trials on an n-by-n grid in parallel, choosing sites with the given method
+     public PercolationStats(int n, int t, long seed, Method method) {
+         this(n, t, seed, method, 0.0, null);
+     }
+
+     // perform up to t trials in parallel batches, stopping early once the 95% confidence
+     // interval is no wider than targetWidth (0 to always run all t); progress, if not
+     // null, is called on this thread with the running estimate after every batch
+     public PercolationStats(int n, int t, long seed, Method method, double targetWidth, Progress progress) {
+         if (method == null) {
+             throw new IllegalArgumentException("Method is null");
+         }
          if (n <= 0 || t <= 0) {
              throw new IllegalArgumentException("Given N <= 0 || T <= 0");
          }
-         experimentsCount = t;
-         fractions = new double[experimentsCount];
-         for (int expNum = 0; expNum < experimentsCount; expNum++) {
-             Percolation pr = new Percolation(n);
-             int openedSites = 0;
-             while (!pr.percolates()) {
-                 int i = StdRandom.uniformInt(1, n + 1);
-                 int j = StdRandom.uniformInt(1, n + 1);
-                 if (!pr.isOpen(i, j)) {
-                     pr.open(i, j);
-                     openedSites++;
-                 }
+         if (!(targetWidth >= 0)) {
+             throw new IllegalArgumentException("Target width is negative or NaN");
+         }
+         // at most one Sweep per concurrently running trial; dropped when the constructor returns
+         ConcurrentLinkedQueue<Sweep> sweeps = new ConcurrentLinkedQueue<>();
+         for (int from = 0; from < t; from += BATCH) {
+             // trials run in parallel but are folded in trial order, so the floating-point
+             // sums, and with them the early-stopping decision, do not depend on scheduling
+             double[] fractions = IntStream.range(from, Math.min(t, from + BATCH)).parallel()
+                                      .mapToDouble(expNum -> {
+                                          SplittableRandom random = new SplittableRandom(mix(seed, expNum));
+                                          if (method == Method.SWEEP) {
+                                              Sweep sweep = sweeps.poll();
+                                              if (sweep == null) {
+                                                  sweep = new Sweep(n);
+                                              }
+                                              double fraction = sweep.trial(random);
+                                              sweeps.offer(sweep);
+                                              return fraction;
+                                          }
+                                          if (method == Method.PERMUTATION) {
+                                              return permutationTrial(n, random);
+                                          }
+                                          return trial(n, random);
+                                      })
+                                      .toArray();
+             for (double x : fractions) {
+                 add(x);
+             }
+             if (progress != null) {
+                 progress.update(this);
+             }
+             if (targetWidth > 0 && experimentsCount > 1 && confidenceHi() - confidenceLo() <= targetWidth) {
+                 break;
+             }
+         }
+     }
+
+     // Welford's online update of the running mean and sum of squared deviations
+     private void add(double x) {
+         experimentsCount++;
+         double delta = x - mean;
+         mean += delta / experimentsCount;
+         m2 += delta * (x - mean);
+     }
+
+     // open random sites until the grid percolates; returns the fraction opened
+     private static double trial(int n, SplittableRandom random) {
+         Percolation pr = new Percolation(n);
+         while (!pr.percolates()) {
+             int i = random.nextInt(1, n + 1);
+             int j = random.nextInt(1, n + 1);
+             if (!pr.isOpen(i, j)) {
+                 pr.open(i, j);
              }
-             double fraction = (double) openedSites / (n * n);
-             fractions[expNum] = fraction;
          }
+         return pr.numberOfOpenSites() / ((double) n * n);
+     }
+
+     // one PERMUTATION trial on freshly allocated buffers; returns the fraction opened
+     private static double permutationTrial(int n, SplittableRandom random) {
+         return openUntilPercolates(new Percolation(n), new int[n * n], random);
+     }
+
+     // open sites of an all-blocked grid in a random order, one Fisher-Yates step per
+     // open, through the unchecked Percolation.openSite; order (one slot per site) is
+     // reset to the identity first, so the result depends only on random. Returns the
+     // fraction opened
+     private static double openUntilPercolates(Percolation pr, int[] order, SplittableRandom random) {
+         int sites = order.length;
+         for (int i = 0; i < sites; i++) {
+             order[i] = i;
+         }
+         for (int k = 0; !pr.percolates(); k++) {
+             int j = k + random.nextInt(sites - k);
+             int site = order[j];
+             order[j] = order[k];
+             order[k] = site;
+             pr.openSite(site);
+         }
+         return pr.numberOfOpenSites() / ((double) sites);
+     }
+
+     // Reusable grid and order buffer for Method.SWEEP, used by one trial at a time and
+     // cleared before it. The trial is openUntilPercolates, exactly as for PERMUTATION;
+     // its check after each open is an O(1) read of the flag SitePercolation sets in
+     // union() when a component first touches both top and bottom, not a grid scan.
+     private static final class Sweep {
+         private final Percolation pr;
+         private final int[] order;
+
+         Sweep(int n) {
+             pr = new Percolation(n);
+             order = new int[n * n];
+         }
+
+         double trial(SplittableRandom random) {
+             pr.clear();
+             return openUntilPercolates(pr, order, random);
+         }
+     }
+
+     // seed for trial k; hashed rather than seed + k, because SplittableRandom
+     // streams from nearby seeds overlap
+     private static long mix(long seed, long k) {
+         long z = seed + (k + 1) * 0x9E3779B97F4A7C15L;
+         z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+         z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+         return z ^ (z >>> 33);
+     }
+
+     // number of trials run so far (fewer than T if the target width was reached early)
+     public int trials() {
+         return experimentsCount;
      }
 
      // sample mean of percolation threshold
      public double mean() {
-         return StdStats.mean(fractions);
+         return mean;
      }
 
      // sample standard deviation of percolation threshold
      public double stddev() {
-         return StdStats.stddev(fractions);
+         return Math.sqrt(m2 / (experimentsCount - 1));
      }
 
      // low endpoint of 95% confidence interval
@@ -62,12 +205,29 @@
      public static void main(String[] args) {
          int n = Integer.parseInt(args[0]);
          int t = Integer.parseInt(args[1]);
-         PercolationStats ps = new PercolationStats(n, t);
+         PercolationStats ps;
+         if (args.length > 4) {
+             ps = new PercolationStats(n, t, Long.parseLong(args[2]), Method.valueOf(args[3]),
+                                       Double.parseDouble(args[4]),
+                                       running -> StdOut.println(running.trials() + " trials: "
+                                                                         + running.confidenceLo() + ", "
+                                                                         + running.confidenceHi()));
+         }
+         else if (args.length > 3) {
+             ps = new PercolationStats(n, t, Long.parseLong(args[2]), Method.valueOf(args[3]));
+         }
+         else if (args.length > 2) {
+             ps = new PercolationStats(n, t, Long.parseLong(args[2]));
+         }
+         else {
+             ps = new PercolationStats(n, t);
+         }
 
          String confidence = ps.confidenceLo() + ", " + ps.confidenceHi();
          StdOut.println("mean                    = " + ps.mean());
          StdOut.println("stddev                  = " + ps.stddev());
          StdOut.println("95% confidence interval = " + confidence);
+         StdOut.println("trials                  = " + ps.trials());
      }
 
  }
@@ -0,0 +1,477 @@
+ import edu.princeton.cs.algs4.StdOut;
+
+ import java.io.IOException;
+ import java.io.UncheckedIOException;
+ import java.nio.ByteBuffer;
+ import java.nio.ByteOrder;
+ import java.nio.channels.FileChannel;
+ import java.nio.file.Path;
+ import java.nio.file.StandardOpenOption;
+ import java.util.Arrays;
+ import java.util.SplittableRandom;
+
+ // Site percolation on any Topology. Sites are addressed by their linear index
+ // 0 .. sites() - 1; everything is kept in flat arrays: a packed union-find, a
+ // bitset of open sites and two bitsets of per-component top/bottom flags.
+ // Cluster statistics (largest cluster, the cluster-size histogram and the open
+ // count at which the lattice first percolates) are kept up to date as sites
+ // open, and every open/merge/percolate can be streamed to a PercolationEventLog.
+ public class SitePercolation {
+
+     private final Topology topology;
+     private final long[] opened;     // bitset of open sites
+     private final int[] nbr;         // scratch buffer for Topology.neighbors
+     private int openSites;
+     private boolean percolates;
+     private int percolatedAt = -1;   // open sites when the lattice first percolated
+     private int largest;             // size of the largest cluster
+     private int clusters;            // number of clusters
+     private final SizeHistogram histogram = new SizeHistogram();   // number of clusters of each size
+     private PercolationEventLog log;
+
+     // Union-find packed into one array: parent[i] >= 0 is the parent of i, and a
+     // root stores -size (always negative). Union by size plus path halving.
+     private final int[] parent;
+
+     // Per-component flags, only meaningful at roots: does the component touch the
+     // top / the bottom? Keeping them here instead of linking virtual top and bottom
+     // sites means bottom sites never look full through the bottom (no backwash).
+     private final long[] top;
+     private final long[] bottom;
+
+     // creates a lattice with the given topology, with all sites initially blocked
+     public SitePercolation(Topology topology) {
+         if (topology == null) {
+             throw new IllegalArgumentException("Topology is null");
+         }
+         this.topology = topology;
+         int sites = topology.sites();
+         parent = new int[sites];
+         Arrays.fill(parent, -1);
+         opened = new long[(int) ((sites + 63L) >>> 6)];
+         top = new long[opened.length];
+         bottom = new long[opened.length];
+         nbr = new int[topology.maxDegree()];
+     }
+
+     // creates a lattice with the given topology whose open sites are read from a
+     // mask file in one pass: either one bit per site (site i is bit i % 8 of byte
+     // i / 8, so ceil(sites / 8) bytes) or one byte per site (nonzero is open, so
+     // sites bytes). A one-site mask is one byte either way, and is read as a byte
+     // mask: any nonzero value opens the site. Sites open in index order, which is
+     // the order openSitesAtPercolation() and an event log see
+     public SitePercolation(Topology topology, Path mask) {
+         this(topology);
+         if (mask == null) {
+             throw new IllegalArgumentException("Mask is null");
+         }
+         long sites = parent.length;
+         try (FileChannel in = FileChannel.open(mask, StandardOpenOption.READ)) {
+             boolean bits;
+             if (in.size() == (sites + 7) >>> 3 && sites > 1) {
+                 bits = true;
+             }
+             else if (in.size() == sites) {
+                 bits = false;
+             }
+             else {
+                 throw new IllegalArgumentException("Mask must be " + ((sites + 7) >>> 3) + " bytes (bits) or "
+                                                            + sites + " bytes (bytes), not " + in.size());
+             }
+             ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+             long site = 0;
+             while (true) {
+                 buffer.clear();
+                 while (buffer.hasRemaining() && in.read(buffer) >= 0) {
+                     // fill the whole buffer, so only the last one is partial
+                 }
+                 buffer.flip();
+                 if (!buffer.hasRemaining()) {
+                     break;
+                 }
+                 site = bits ? loadBits(buffer, site) : loadBytes(buffer, site);
+             }
+         }
+         catch (IOException e) {
+             throw new UncheckedIOException(e);
+         }
+     }
+
+     // the number of sites in the lattice
+     public int sites() {
+         return parent.length;
+     }
+
+     // opens the site if it is not open already
+     public void open(int site) {
+         checkSite(site);
+         openSite(site);
+     }
+
+     // opens every listed site that is not open already; all indices are checked
+     // before any site is opened
+     public void openAll(int[] sites) {
+         if (sites == null) {
+             throw new IllegalArgumentException("Sites is null");
+         }
+         for (int site : sites) {
+             checkSite(site);
+         }
+         for (int site : sites) {
+             openSite(site);
+         }
+     }
+
+     // opens the site if it is not open already; unchecked
+     void openSite(int site) {
+         if (getBit(opened, site)) {
+             return;
+         }
+         setBit(opened, site);
+         ++openSites;
+         ++clusters;
+         histogram.add(1, 1);
+         if (largest == 0) {
+             largest = 1;
+         }
+         if (log != null) {
+             log.open(site);
+         }
+
+         if (topology.isTop(site)) {
+             setBit(top, site);
+         }
+         if (topology.isBottom(site)) {
+             setBit(bottom, site);
+         }
+         // A lone site can span the lattice when it is one layer thick
+         if (getBit(top, site) && getBit(bottom, site)) {
+             percolated();
+         }
+
+         int degree = topology.neighbors(site, nbr);
+         for (int i = 0; i < degree; i++) {
+             if (getBit(opened, nbr[i])) {
+                 union(site, nbr[i]);
+             }
+         }
+     }
+
+     // is the site open?
+     public boolean isOpen(int site) {
+         checkSite(site);
+         return getBit(opened, site);
+     }
+
+     // is the site open and connected to the top?
+     public boolean isFull(int site) {
+         checkSite(site);
+         return getBit(opened, site) && getBit(top, find(site));
+     }
+
+     // returns the number of open sites
+     public int numberOfOpenSites() {
+         return openSites;
+     }
+
+     // does the system percolate?
+     public boolean percolates() {
+         return percolates;
+     }
+
+     // the number of open sites at the moment the lattice first percolated, or -1 if it has not
+     public int openSitesAtPercolation() {
+         return percolatedAt;
+     }
+
+     // the number of sites in the largest cluster of open sites
+     public int largestCluster() {
+         return largest;
+     }
+
+     // the number of clusters of open sites
+     public int clusterCount() {
+         return clusters;
+     }
+
+     // the number of clusters with exactly the given number of sites
+     public int clusterCount(int clusterSites) {
+         if (clusterSites <= 0) {
+             throw new IllegalArgumentException("Cluster size must be positive");
+         }
+         return histogram.count(clusterSites);
+     }
+
+     // the size of the cluster containing the site, or 0 if the site is blocked
+     public int clusterSize(int site) {
+         checkSite(site);
+         return getBit(opened, site) ? -parent[find(site)] : 0;
+     }
+
+     // records every subsequent open, merge and percolate into log (null to stop)
+     public void setEventLog(PercolationEventLog log) {
+         this.log = log;
+     }
+
+     // blocks every site again, so one instance can be reused across trials without reallocating
+     void clear() {
+         Arrays.fill(parent, -1);
+         Arrays.fill(opened, 0L);
+         Arrays.fill(top, 0L);
+         Arrays.fill(bottom, 0L);
+         histogram.clear();
+         openSites = 0;
+         percolates = false;
+         percolatedAt = -1;
+         largest = 0;
+         clusters = 0;
+     }
+
+     private void checkSite(int site) {
+         if (site < 0 || site >= parent.length) {
+             throw new IllegalArgumentException();
+         }
+     }
+
+     // opens the sites whose bits are set in a bit-mask buffer starting at site; returns the next site
+     private long loadBits(ByteBuffer buffer, long site) {
+         while (buffer.remaining() >= Long.BYTES) {
+             openWord(site, buffer.getLong());
+             site += Long.SIZE;
+         }
+         while (buffer.hasRemaining()) {
+             openWord(site, buffer.get() & 0xFFL);
+             site += Byte.SIZE;
+         }
+         return site;
+     }
+
+     // opens the sites whose bytes are nonzero in a byte-mask buffer starting at site; returns the next site
+     private long loadBytes(ByteBuffer buffer, long site) {
+         while (buffer.remaining() >= Long.BYTES) {
+             if (buffer.getLong() == 0) {
+                 site += Long.BYTES;
+                 continue;
+             }
+             for (int i = buffer.position() - Long.BYTES; i < buffer.position(); i++, site++) {
+                 if (buffer.get(i) != 0) {
+                     openSite((int) site);
+                 }
+             }
+         }
+         while (buffer.hasRemaining()) {
+             if (buffer.get() != 0) {
+                 openSite((int) site);
+             }
+             site++;
+         }
+         return site;
+     }
+
+     // opens the set bits of one mask word, ignoring padding past the last site
+     private void openWord(long base, long bits) {
+         while (bits != 0) {
+             long site = base + Long.numberOfTrailingZeros(bits);
+             if (site >= parent.length) {
+                 return;
+             }
+             openSite((int) site);
+             bits &= bits - 1;
+         }
+     }
+
+     private static boolean getBit(long[] bits, int i) {
+         return (bits[i >>> 6] & (1L << i)) != 0;
+     }
+
+     private static void setBit(long[] bits, int i) {
+         bits[i >>> 6] |= 1L << i;
+     }
+
+     // Root of p, pointing every other node on the path at its grandparent
+     private int find(int p) {
+         int q;
+         while ((q = parent[p]) >= 0) {
+             int r = parent[q];
+             if (r < 0) {
+                 return q;
+             }
+             parent[p] = r;
+             p = r;
+         }
+         return p;
+     }
+
+     private void percolated() {
+         if (!percolates) {
+             percolates = true;
+             percolatedAt = openSites;
+             if (log != null) {
+                 log.percolate(openSites);
+             }
+         }
+     }
+
+     // Links the roots of p and q, hanging the smaller tree under the other, and
+     // carries the size and the top/bottom flags over to the surviving root
+     private void union(int p, int q) {
+         int rootP = find(p);
+         int rootQ = find(q);
+         if (rootP == rootQ) {
+             return;
+         }
+         int sizeP = -parent[rootP];
+         int sizeQ = -parent[rootQ];
+         if (sizeP < sizeQ) {
+             int swap = rootP;
+             rootP = rootQ;
+             rootQ = swap;
+         }
+         int merged = sizeP + sizeQ;
+         parent[rootQ] = rootP;
+         parent[rootP] = -merged;
+
+         --clusters;
+         histogram.add(sizeP, -1);
+         histogram.add(sizeQ, -1);
+         histogram.add(merged, 1);
+         if (merged > largest) {
+             largest = merged;
+         }
+         if (log != null) {
+             log.merge(rootP, rootQ);
+         }
+
+         boolean toTop = getBit(top, rootP) || getBit(top, rootQ);
+         boolean toBottom = getBit(bottom, rootP) || getBit(bottom, rootQ);
+         if (toTop) {
+             setBit(top, rootP);
+         }
+         if (toBottom) {
+             setBit(bottom, rootP);
+         }
+         if (toTop && toBottom) {
+             percolated();
+         }
+     }
+
+     // Number of clusters of each size: a fixed dense array for small sizes, where
+     // nearly all clusters are, and an open-addressing map for the rest. There are
+     // at most sites / DENSE clusters of DENSE sites or more, so the map stays far
+     // smaller than the lattice, and entries whose count drops to zero are removed
+     // (backward-shift deletion) so the map never fills up with dead sizes.
+     private static final class SizeHistogram {
+         private static final int DENSE = 1024;
+
+         private final int[] small = new int[DENSE];
+         private int[] keys = new int[16];       // cluster size, 0 for an empty slot
+         private int[] counts = new int[16];
+         private int entries;
+
+         int count(int size) {
+             if (size < DENSE) {
+                 return small[size];
+             }
+             int i = slot(size);
+             return keys[i] == 0 ? 0 : counts[i];
+         }
+
+         void add(int size, int delta) {
+             if (size < DENSE) {
+                 small[size] += delta;
+                 return;
+             }
+             int i = slot(size);
+             if (keys[i] == 0) {
+                 keys[i] = size;
+                 counts[i] = delta;
+                 if (++entries > keys.length / 2) {
+                     grow();
+                 }
+                 return;
+             }
+             counts[i] += delta;
+             if (counts[i] == 0) {
+                 remove(i);
+             }
+         }
+
+         void clear() {
+             Arrays.fill(small, 0);
+             Arrays.fill(keys, 0);
+             entries = 0;
+         }
+
+         private int home(int size) {
+             return (size * 0x9E3779B9) >>> (32 - Integer.numberOfTrailingZeros(keys.length));
+         }
+
+         // the slot holding size, or the empty slot where it would go
+         private int slot(int size) {
+             int mask = keys.length - 1;
+             int i = home(size);
+             while (keys[i] != 0 && keys[i] != size) {
+                 i = (i + 1) & mask;
+             }
+             return i;
+         }
+
+         // empty slot i, moving later entries of its probe run back so lookups still find them
+         private void remove(int i) {
+             int mask = keys.length - 1;
+             int j = i;
+             while (true) {
+                 j = (j + 1) & mask;
+                 if (keys[j] == 0) {
+                     break;
+                 }
+                 int k = home(keys[j]);
+                 // move j back to i unless its home lies cyclically in (i, j]
+                 if (i <= j ? (k <= i || k > j) : (k <= i && k > j)) {
+                     keys[i] = keys[j];
+                     counts[i] = counts[j];
+                     i = j;
+                 }
+             }
+             keys[i] = 0;
+             entries--;
+         }
+
+         private void grow() {
+             int[] oldKeys = keys;
+             int[] oldCounts = counts;
+             keys = new int[2 * oldKeys.length];
+             counts = new int[keys.length];
+             for (int i = 0; i < oldKeys.length; i++) {
+                 if (oldKeys[i] != 0) {
+                     int j = slot(oldKeys[i]);
+                     keys[j] = oldKeys[i];
+                     counts[j] = oldCounts[i];
+                 }
+             }
+         }
+     }
+
+     // test client: open random sites on a few lattices until each percolates
+     public static void main(String[] args) {
+         int n = args.length > 0 ? Integer.parseInt(args[0]) : 40;
+         Topology[] lattices = {
+                 new Topology.Square(n, n, false),
+                 new Topology.Square(n, n, true),
+                 new Topology.Triangular(n, n),
+                 new Topology.Hexagonal(n, n),
+                 new Topology.Cubic(n, n, n),
+         };
+         SplittableRandom random = new SplittableRandom(1);
+         for (Topology lattice : lattices) {
+             SitePercolation sp = new SitePercolation(lattice);
+             while (!sp.percolates()) {
+                 sp.open(random.nextInt(sp.sites()));
+             }
+             StdOut.println(lattice.getClass().getSimpleName() + " threshold ~ "
+                                    + (double) sp.openSitesAtPercolation() / sp.sites()
+                                    + ", largest cluster " + sp.largestCluster()
+                                    + " of " + sp.clusterCount() + " clusters");
+         }
+     }
+ }
@@ -0,0 +1,228 @@
+ // Site layout for SitePercolation: sites are numbered 0 .. sites() - 1, and the
+ // topology says which sites touch, and which sit on the top and bottom faces.
+ // neighbors() fills a caller-owned buffer so the open path never allocates.
+ public interface Topology {
+
+     // total number of sites
+     int sites();
+
+     // the largest number of neighbors any site can have (the size neighbors() needs)
+     int maxDegree();
+
+     // writes the neighbors of site into out and returns how many there are
+     int neighbors(int site, int[] out);
+
+     // is the site on the face that fluid enters from?
+     boolean isTop(int site);
+
+     // is the site on the face that fluid has to reach?
+     boolean isBottom(int site);
+
+     // product of the lattice dimensions, checked to fit in the largest array the JVM reliably allocates
+     private static int checkSites(int... dims) {
+         long sites = 1;
+         for (int d : dims) {
+             if (d <= 0) {
+                 throw new IllegalArgumentException("Lattice dimensions must be positive");
+             }
+             sites *= d;
+             if (sites > Integer.MAX_VALUE - 8) {
+                 throw new IllegalArgumentException("Lattice must have at most 2^31 - 9 sites");
+             }
+         }
+         return (int) sites;
+     }
+
+     // rows-by-cols grid with 4 neighbors, or 8 when diagonals are included; top is row 0
+     final class Square implements Topology {
+         private final int rows;
+         private final int cols;
+         private final int sites;
+         private final boolean diagonals;
+
+         public Square(int rows, int cols, boolean diagonals) {
+             sites = checkSites(rows, cols);
+             this.rows = rows;
+             this.cols = cols;
+             this.diagonals = diagonals;
+         }
+
+         public int sites() {
+             return sites;
+         }
+
+         public int maxDegree() {
+             return diagonals ? 8 : 4;
+         }
+
+         public int neighbors(int site, int[] out) {
+             int r = site / cols;
+             int c = site - r * cols;
+             boolean up = r > 0;
+             boolean down = r < rows - 1;
+             boolean left = c > 0;
+             boolean right = c < cols - 1;
+             int d = 0;
+             if (up) out[d++] = site - cols;
+             if (down) out[d++] = site + cols;
+             if (left) out[d++] = site - 1;
+             if (right) out[d++] = site + 1;
+             if (diagonals) {
+                 if (up && left) out[d++] = site - cols - 1;
+                 if (up && right) out[d++] = site - cols + 1;
+                 if (down && left) out[d++] = site + cols - 1;
+                 if (down && right) out[d++] = site + cols + 1;
+             }
+             return d;
+         }
+
+         public boolean isTop(int site) {
+             return site < cols;
+         }
+
+         public boolean isBottom(int site) {
+             return site >= sites - cols;
+         }
+     }
+
+     // triangular lattice stored as a sheared square grid: the 4 square neighbors
+     // plus the (up, left) and (down, right) diagonals, 6 in all
+     final class Triangular implements Topology {
+         private final int rows;
+         private final int cols;
+         private final int sites;
+
+         public Triangular(int rows, int cols) {
+             sites = checkSites(rows, cols);
+             this.rows = rows;
+             this.cols = cols;
+         }
+
+         public int sites() {
+             return sites;
+         }
+
+         public int maxDegree() {
+             return 6;
+         }
+
+         public int neighbors(int site, int[] out) {
+             int r = site / cols;
+             int c = site - r * cols;
+             boolean up = r > 0;
+             boolean down = r < rows - 1;
+             boolean left = c > 0;
+             boolean right = c < cols - 1;
+             int d = 0;
+             if (up) out[d++] = site - cols;
+             if (down) out[d++] = site + cols;
+             if (left) out[d++] = site - 1;
+             if (right) out[d++] = site + 1;
+             if (up && left) out[d++] = site - cols - 1;
+             if (down && right) out[d++] = site + cols + 1;
+             return d;
+         }
+
+         public boolean isTop(int site) {
+             return site < cols;
+         }
+
+         public boolean isBottom(int site) {
+             return site >= sites - cols;
+         }
+     }
+
+     // honeycomb lattice stored as a brick wall: left and right neighbors, plus one
+     // vertical neighbor that alternates between down and up along each row, 3 in all
+     final class Hexagonal implements Topology {
+         private final int rows;
+         private final int cols;
+         private final int sites;
+
+         public Hexagonal(int rows, int cols) {
+             sites = checkSites(rows, cols);
+             this.rows = rows;
+             this.cols = cols;
+         }
+
+         public int sites() {
+             return sites;
+         }
+
+         public int maxDegree() {
+             return 3;
+         }
+
+         public int neighbors(int site, int[] out) {
+             int r = site / cols;
+             int c = site - r * cols;
+             int d = 0;
+             if (c > 0) out[d++] = site - 1;
+             if (c < cols - 1) out[d++] = site + 1;
+             if (((r + c) & 1) == 0) {
+                 if (r < rows - 1) out[d++] = site + cols;
+             }
+             else {
+                 if (r > 0) out[d++] = site - cols;
+             }
+             return d;
+         }
+
+         public boolean isTop(int site) {
+             return site < cols;
+         }
+
+         public boolean isBottom(int site) {
+             return site >= sites - cols;
+         }
+     }
+
+     // nx-by-ny-by-nz simple cubic lattice with 6 neighbors; fluid enters at z = 0
+     // and must reach z = nz - 1; site = (z * ny + y) * nx + x
+     final class Cubic implements Topology {
+         private final int nx;
+         private final int ny;
+         private final int nz;
+         private final int layer;
+         private final int sites;
+
+         public Cubic(int nx, int ny, int nz) {
+             sites = checkSites(nx, ny, nz);
+             this.nx = nx;
+             this.ny = ny;
+             this.nz = nz;
+             layer = nx * ny;
+         }
+
+         public int sites() {
+             return sites;
+         }
+
+         public int maxDegree() {
+             return 6;
+         }
+
+         public int neighbors(int site, int[] out) {
+             int z = site / layer;
+             int rest = site - z * layer;
+             int y = rest / nx;
+             int x = rest - y * nx;
+             int d = 0;
+             if (x > 0) out[d++] = site - 1;
+             if (x < nx - 1) out[d++] = site + 1;
+             if (y > 0) out[d++] = site - nx;
+             if (y < ny - 1) out[d++] = site + nx;
+             if (z > 0) out[d++] = site - layer;
+             if (z < nz - 1) out[d++] = site + layer;
+             return d;
+         }
+
+         public boolean isTop(int site) {
+             return site < layer;
+         }
+
+         public boolean isBottom(int site) {
+             return site >= sites - layer;
+         }
+     }
+ }
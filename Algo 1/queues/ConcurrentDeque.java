@@ -0,0 +1,291 @@
+import edu.princeton.cs.algs4.StdOut;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ConcurrentDeque<Item> implements Iterable<Item> {
+
+    // lock-free doubly-linked list: every add and remove is a CAS on a node
+    // link, so threads never block each other and no operation holds a lock
+    private final ConcurrentLinkedDeque<Item> deque;
+
+    // construct an empty deque
+    public ConcurrentDeque() {
+        deque = new ConcurrentLinkedDeque<>();
+    }
+
+    // is the deque empty?
+    public boolean isEmpty() {
+        return deque.isEmpty();
+    }
+
+    // return the number of items on the deque; this walks the list, so under
+    // contention it is only an estimate
+    public int size() {
+        return deque.size();
+    }
+
+    // add the item to the front
+    public void addFirst(Item item) {
+        if (item == null) {
+            throw new IllegalArgumentException("Cannot add a null argument.");
+        }
+        deque.addFirst(item);
+    }
+
+    // add the item to the back
+    public void addLast(Item item) {
+        if (item == null) {
+            throw new IllegalArgumentException("Cannot add a null argument.");
+        }
+        deque.addLast(item);
+    }
+
+    // remove and return the item from the front
+    public Item removeFirst() {
+        Item item = deque.pollFirst();
+        if (item == null) {
+            throw new NoSuchElementException("The deque is empty.");
+        }
+        return item;
+    }
+
+    // remove and return the item from the back
+    public Item removeLast() {
+        Item item = deque.pollLast();
+        if (item == null) {
+            throw new NoSuchElementException("The deque is empty.");
+        }
+        return item;
+    }
+
+    // remove and return the item from the front, or null if the deque is empty
+    public Item pollFirst() {
+        return deque.pollFirst();
+    }
+
+    // remove and return the item from the back, or null if the deque is empty
+    public Item pollLast() {
+        return deque.pollLast();
+    }
+
+    // return a weakly consistent iterator over items from front to back; it never
+    // throws ConcurrentModificationException and may or may not reflect updates
+    // made after it was created
+    public Iterator<Item> iterator() {
+        return new ConcurrentDequeIterator();
+    }
+
+    private class ConcurrentDequeIterator implements Iterator<Item> {
+
+        private final Iterator<Item> it = deque.iterator();
+
+        public boolean hasNext() {
+            return it.hasNext();
+        }
+
+        public Item next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException("There are no items.");
+            }
+            return it.next();
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException("Remove is not supported.");
+        }
+    }
+
+    // stress test with both ends under contention: even producers addLast and odd
+    // producers addFirst (producer, sequence) pairs, while half the consumers
+    // removeFirst and half removeLast. Every item must come out exactly once, and a
+    // consumer at the opposite end from a producer sees that producer's items in
+    // increasing order (they travel through the deque FIFO).
+    private static boolean stress(int producers, int consumers, int perProducer) throws InterruptedException {
+        ConcurrentDeque<Long> deque = new ConcurrentDeque<>();
+        int total = producers * perProducer;
+        AtomicInteger taken = new AtomicInteger();
+        boolean[] seen = new boolean[total];
+        AtomicInteger errors = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[producers + consumers];
+
+        for (int p = 0; p < producers; p++) {
+            final long id = p;
+            threads[p] = new Thread(() -> {
+                await(start);
+                for (long s = 0; s < perProducer; s++) {
+                    if ((id & 1) == 0) {
+                        deque.addLast((id << 32) | s);
+                    }
+                    else {
+                        deque.addFirst((id << 32) | s);
+                    }
+                }
+            });
+        }
+        for (int c = 0; c < consumers; c++) {
+            final boolean front = (c & 1) == 0;
+            threads[producers + c] = new Thread(() -> {
+                long[] last = new long[producers];
+                Arrays.fill(last, -1);
+                await(start);
+                while (taken.get() < total) {
+                    Long item;
+                    try {
+                        item = front ? deque.removeFirst() : deque.removeLast();
+                    }
+                    catch (NoSuchElementException e) {
+                        continue;
+                    }
+                    int id = (int) (item >>> 32);
+                    long s = item & 0xffffffffL;
+                    // producers at the back feed the front in order, and vice versa
+                    if (front == ((id & 1) == 0)) {
+                        if (s <= last[id]) {
+                            errors.incrementAndGet();
+                        }
+                        last[id] = s;
+                    }
+                    record(seen, (int) (id * (long) perProducer + s), errors);
+                    taken.incrementAndGet();
+                }
+            });
+        }
+        run(threads, start);
+        return allSeen(seen, errors) && deque.isEmpty();
+    }
+
+    // stress test of LIFO use from one end: one owner addLast/removeLast's its own
+    // items like a stack while thieves removeFirst. Thieves only ever take the
+    // oldest items, so every pop by the owner must return its newest item still
+    // unpopped, thieves must see the items in increasing order, and every item
+    // must come out exactly once.
+    private static boolean stressLifo(int thieves, int items) throws InterruptedException {
+        ConcurrentDeque<Long> deque = new ConcurrentDeque<>();
+        AtomicInteger taken = new AtomicInteger();
+        boolean[] seen = new boolean[items];
+        AtomicInteger errors = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[1 + thieves];
+
+        threads[0] = new Thread(() -> {
+            long[] stack = new long[items];
+            int depth = 0;
+            await(start);
+            for (long s = 0; s < items; s++) {
+                deque.addLast(s);
+                stack[depth++] = s;
+                if (s % 3 == 2) {
+                    depth = pop(deque, stack, depth, seen, errors, taken);
+                    depth = pop(deque, stack, depth, seen, errors, taken);
+                }
+            }
+            while (depth > 0) {
+                depth = pop(deque, stack, depth, seen, errors, taken);
+            }
+        });
+        for (int t = 1; t <= thieves; t++) {
+            threads[t] = new Thread(() -> {
+                long last = -1;
+                await(start);
+                while (taken.get() < items) {
+                    Long item = deque.pollFirst();
+                    if (item == null) {
+                        continue;
+                    }
+                    if (item <= last) {
+                        errors.incrementAndGet();
+                    }
+                    last = item;
+                    record(seen, (int) (long) item, errors);
+                    taken.incrementAndGet();
+                }
+            });
+        }
+        run(threads, start);
+        return allSeen(seen, errors) && deque.isEmpty();
+    }
+
+    // one owner pop: the result must be the top of the owner's stack of unpopped
+    // items, since anything stolen lies below it; an empty deque means thieves took
+    // the rest. Returns the new stack depth.
+    private static int pop(ConcurrentDeque<Long> deque, long[] stack, int depth, boolean[] seen,
+                           AtomicInteger errors, AtomicInteger taken) {
+        Long item = deque.pollLast();
+        if (item == null) {
+            return 0;
+        }
+        if (depth == 0 || item != stack[depth - 1]) {
+            errors.incrementAndGet();
+        }
+        record(seen, (int) (long) item, errors);
+        taken.incrementAndGet();
+        return Math.max(0, depth - 1);
+    }
+
+    private static void record(boolean[] seen, int slot, AtomicInteger errors) {
+        synchronized (seen) {
+            if (seen[slot]) {
+                errors.incrementAndGet();
+            }
+            seen[slot] = true;
+        }
+    }
+
+    private static boolean allSeen(boolean[] seen, AtomicInteger errors) {
+        for (boolean b : seen) {
+            if (!b) {
+                errors.incrementAndGet();
+            }
+        }
+        return errors.get() == 0;
+    }
+
+    private static void run(Thread[] threads, CountDownLatch start) throws InterruptedException {
+        for (Thread t : threads) {
+            t.start();
+        }
+        start.countDown();
+        for (Thread t : threads) {
+            t.join();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // unit testing
+    public static void main(String[] args) throws InterruptedException {
+        ConcurrentDeque<Integer> deque = new ConcurrentDeque<>();
+        for (int i = 0; i < 10; i++) {
+            deque.addFirst(i);
+            deque.addLast(100 + i);
+        }
+        for (int j : deque) {
+            StdOut.print(j + " ");
+        }
+        StdOut.print("\n");
+        StdOut.println(deque.size());
+        while (!deque.isEmpty()) {
+            StdOut.print(deque.removeFirst() + " ");
+            StdOut.print(deque.removeLast() + " ");
+        }
+        StdOut.print("\n");
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        int threads = Math.max(2, cores);
+        StdOut.println("stress " + threads + "x" + threads + ": " + stress(threads, threads, 200000));
+        StdOut.println("stress LIFO owner + " + threads + " thieves: " + stressLifo(threads, 600000));
+    }
+}
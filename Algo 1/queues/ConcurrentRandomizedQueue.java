@@ -0,0 +1,212 @@
+import edu.princeton.cs.algs4.StdOut;
+
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Thread-safe randomized queue striped over independently locked shards. Each
+// thread enqueues into its own home shard; dequeue picks a random shard (the
+// fuller of two random choices, to stay close to uniform over all items) and
+// falls back to stealing from the other shards when that one is busy or empty.
+// Removal is uniform within a shard and approximately uniform overall.
+public class ConcurrentRandomizedQueue<Item> {
+
+    private final RandomizedQueue<Item>[] shards;
+    private final ReentrantLock[] locks;
+    private final int mask;
+    private final LongAdder n = new LongAdder();
+
+    // construct an empty queue with two shards per available core
+    public ConcurrentRandomizedQueue() {
+        this(2 * Runtime.getRuntime().availableProcessors());
+    }
+
+    // construct an empty queue with at least the given number of shards (rounded up to a power of two)
+    public ConcurrentRandomizedQueue(int shardCount) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("Need at least one shard.");
+        }
+        int size = Integer.highestOneBit(shardCount);
+        if (size < shardCount) {
+            size *= 2;
+        }
+        shards = new RandomizedQueue[size];
+        locks = new ReentrantLock[size];
+        SplittableRandom seeds = new SplittableRandom();
+        for (int i = 0; i < size; i++) {
+            // each shard's generator is only touched under that shard's lock
+            shards[i] = new RandomizedQueue<>(seeds.split());
+            locks[i] = new ReentrantLock();
+        }
+        mask = size - 1;
+    }
+
+    // is the queue empty? (a snapshot, which may be stale under contention)
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    // return the number of items on the queue (a snapshot, which may be stale under contention)
+    public int size() {
+        return (int) Math.max(0, n.sum());
+    }
+
+    // add the item to the calling thread's home shard
+    public void enqueue(Item item) {
+        if (item == null) {
+            throw new IllegalArgumentException("Cannot add a null argument.");
+        }
+        int s = home();
+        if (!locks[s].tryLock()) {
+            // the home shard is busy; any other free shard is as good
+            s = ThreadLocalRandom.current().nextInt() & mask;
+            locks[s].lock();
+        }
+        try {
+            shards[s].enqueue(item);
+        }
+        finally {
+            locks[s].unlock();
+        }
+        n.increment();
+    }
+
+    // remove and return a random item
+    public Item dequeue() {
+        Item item = poll();
+        if (item == null) {
+            throw new NoSuchElementException("The queue is empty.");
+        }
+        return item;
+    }
+
+    // remove and return a random item, or null if every shard is empty
+    public Item poll() {
+        Item item = take(true);
+        if (item != null) {
+            n.decrement();
+        }
+        return item;
+    }
+
+    // return a random item (but do not remove it)
+    public Item sample() {
+        Item item = take(false);
+        if (item == null) {
+            throw new NoSuchElementException("The queue is empty.");
+        }
+        return item;
+    }
+
+    // scan the shards until one yields an item; items can move between shards
+    // while a scan is in progress, so a miss only counts once the size agrees
+    private Item take(boolean remove) {
+        while (true) {
+            Item item = scan(remove);
+            if (item != null || n.sum() <= 0) {
+                return item;
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    private Item scan(boolean remove) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int a = random.nextInt() & mask;
+        int b = random.nextInt() & mask;
+        // unlocked size reads are only a hint for where to start
+        int start = shards[a].size() >= shards[b].size() ? a : b;
+
+        // first pass: only shards that are free right now
+        for (int i = 0; i <= mask; i++) {
+            int s = (start + i) & mask;
+            if (shards[s].isEmpty() || !locks[s].tryLock()) {
+                continue;
+            }
+            try {
+                if (!shards[s].isEmpty()) {
+                    return remove ? shards[s].dequeue() : shards[s].sample();
+                }
+            }
+            finally {
+                locks[s].unlock();
+            }
+        }
+        // second pass: wait for each shard in turn
+        for (int i = 0; i <= mask; i++) {
+            int s = (start + i) & mask;
+            locks[s].lock();
+            try {
+                if (!shards[s].isEmpty()) {
+                    return remove ? shards[s].dequeue() : shards[s].sample();
+                }
+            }
+            finally {
+                locks[s].unlock();
+            }
+        }
+        return null;
+    }
+
+    private int home() {
+        long id = Thread.currentThread().getId();
+        return (int) (id * 0x9E3779B97F4A7C15L >>> 32) & mask;
+    }
+
+    // run threads that each do ops enqueue/dequeue pairs; returns pairs per second
+    private static double throughput(int threads, int ops, boolean striped) throws InterruptedException {
+        ConcurrentRandomizedQueue<Integer> pool = new ConcurrentRandomizedQueue<>();
+        RandomizedQueue<Integer> locked = new RandomizedQueue<>();
+        Integer item = 1;
+        for (int i = 0; i < 1024; i++) {
+            pool.enqueue(item);
+            locked.enqueue(item);
+        }
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                for (int i = 0; i < ops; i++) {
+                    if (striped) {
+                        pool.enqueue(pool.dequeue());
+                    }
+                    else {
+                        synchronized (locked) {
+                            locked.enqueue(locked.dequeue());
+                        }
+                    }
+                }
+            });
+        }
+        long start = System.nanoTime();
+        for (Thread w : workers) {
+            w.start();
+        }
+        for (Thread w : workers) {
+            w.join();
+        }
+        return (double) threads * ops / ((System.nanoTime() - start) / 1e9);
+    }
+
+    // unit testing
+    public static void main(String[] args) throws InterruptedException {
+        ConcurrentRandomizedQueue<Integer> rq = new ConcurrentRandomizedQueue<>(4);
+        for (int i = 0; i < 10; i++) {
+            rq.enqueue(i);
+        }
+        StdOut.println(rq.size());
+        StdOut.println(rq.sample());
+        while (!rq.isEmpty()) {
+            StdOut.print(rq.dequeue() + " ");
+        }
+        StdOut.print("\n");
+        StdOut.println(rq.poll());
+
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        for (int round = 0; round < 3; round++) {
+            StdOut.printf("threads=%d  striped %.1fM ops/s  synchronized %.1fM ops/s%n", threads,
+                          throughput(threads, 1000000, true) / 1e6, throughput(threads, 1000000, false) / 1e6);
+        }
+    }
+}
@@ -1,12 +1,25 @@
 import edu.princeton.cs.algs4.StdOut;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
 
 public class Deque<Item> implements Iterable<Item> {
 
+    private static final int MIN_CAPACITY = 8;
+
     private Node first, last;
     private int n;
+    private int modCount;
+
+    // ring buffer used instead of the linked list when array-backed;
+    // capacity is always a power of two so indices wrap with a mask
+    private Item[] a;
+    private int head;
 
     private class Node {
         Item item;
@@ -21,6 +34,15 @@ public class Deque<Item> implements Iterable<Item> {
         n = 0;
     }
 
+    // construct an empty deque, backed by a circular array instead of linked nodes
+    public Deque(boolean arrayBacked) {
+        this();
+        if (arrayBacked) {
+            a = (Item[]) new Object[MIN_CAPACITY];
+            head = 0;
+        }
+    }
+
     // is the deque empty?
     public boolean isEmpty() {
         return n == 0;
@@ -36,6 +58,16 @@ public class Deque<Item> implements Iterable<Item> {
         if (item == null) {
             throw new IllegalArgumentException("Cannot add a null argument.");
         }
+        modCount++;
+        if (a != null) {
+            if (n == a.length) {
+                ensureCapacity(n + 1);
+            }
+            head = (head - 1) & (a.length - 1);
+            a[head] = item;
+            n++;
+            return;
+        }
         Node oldFirst = first;
         first = new Node();
         first.item = item;
@@ -55,6 +87,15 @@ public class Deque<Item> implements Iterable<Item> {
         if (item == null) {
             throw new IllegalArgumentException("Cannot add a null argument.");
         }
+        modCount++;
+        if (a != null) {
+            if (n == a.length) {
+                ensureCapacity(n + 1);
+            }
+            a[(head + n) & (a.length - 1)] = item;
+            n++;
+            return;
+        }
         Node oldLast = last;
         last = new Node();
         last.item = item;
@@ -74,6 +115,15 @@ public class Deque<Item> implements Iterable<Item> {
         if (isEmpty()) {
             throw new NoSuchElementException("The deque is empty.");
         }
+        modCount++;
+        if (a != null) {
+            Item item = a[head];
+            a[head] = null;
+            head = (head + 1) & (a.length - 1);
+            n--;
+            shrink();
+            return item;
+        }
         Item item = first.item;
         first = first.next;
         n--;
@@ -91,6 +141,15 @@ public class Deque<Item> implements Iterable<Item> {
         if (isEmpty()) {
             throw new NoSuchElementException("The deque is empty.");
         }
+        modCount++;
+        if (a != null) {
+            int tail = (head + n - 1) & (a.length - 1);
+            Item item = a[tail];
+            a[tail] = null;
+            n--;
+            shrink();
+            return item;
+        }
         Item item = last.item;
         last = last.prev;
         n--;
@@ -103,14 +162,219 @@ public class Deque<Item> implements Iterable<Item> {
         return item;
     }
 
+    // add items[off..off+len) to the back, in order
+    public void addAllLast(Item[] items, int off, int len) {
+        checkBulk(items, off, len);
+        if (len == 0) {
+            return;
+        }
+        modCount++;
+        if (a != null) {
+            ensureCapacity(n + len);
+            int tail = (head + n) & (a.length - 1);
+            int front = Math.min(len, a.length - tail);
+            System.arraycopy(items, off, a, tail, front);
+            System.arraycopy(items, off + front, a, 0, len - front);
+            n += len;
+            return;
+        }
+        for (int i = off; i < off + len; i++) {
+            Node node = new Node();
+            node.item = items[i];
+            node.prev = last;
+            if (last == null) {
+                first = node;
+            }
+            else {
+                last.next = node;
+            }
+            last = node;
+        }
+        n += len;
+    }
+
+    // add items[off..off+len) to the front, keeping their order, so that
+    // items[off] becomes the first item
+    public void addAllFirst(Item[] items, int off, int len) {
+        checkBulk(items, off, len);
+        if (len == 0) {
+            return;
+        }
+        modCount++;
+        if (a != null) {
+            ensureCapacity(n + len);
+            head = (head - len) & (a.length - 1);
+            int front = Math.min(len, a.length - head);
+            System.arraycopy(items, off, a, head, front);
+            System.arraycopy(items, off + front, a, 0, len - front);
+            n += len;
+            return;
+        }
+        for (int i = off + len - 1; i >= off; i--) {
+            Node node = new Node();
+            node.item = items[i];
+            node.next = first;
+            if (first == null) {
+                last = node;
+            }
+            else {
+                first.prev = node;
+            }
+            first = node;
+        }
+        n += len;
+    }
+
+    // remove up to k items from the front into dst[off..], in order; return how many were removed
+    public int removeFirst(Item[] dst, int off, int k) {
+        if (dst == null) {
+            throw new IllegalArgumentException("Cannot copy into a null array.");
+        }
+        if (off < 0 || k < 0 || off > dst.length || k > dst.length - off) {
+            throw new IllegalArgumentException("Range is out of bounds.");
+        }
+        int count = Math.min(k, n);
+        if (count == 0) {
+            return 0;
+        }
+        modCount++;
+        if (a != null) {
+            int front = Math.min(count, a.length - head);
+            System.arraycopy(a, head, dst, off, front);
+            System.arraycopy(a, 0, dst, off + front, count - front);
+            clearFront(count);
+            return count;
+        }
+        for (int i = 0; i < count; i++) {
+            dst[off + i] = first.item;
+            first = first.next;
+        }
+        unlinkFront(count);
+        return count;
+    }
+
+    // remove up to max items from the front and add them to c, in order; return how many were moved
+    public int drainTo(Collection<? super Item> c, int max) {
+        if (c == null) {
+            throw new IllegalArgumentException("Cannot drain into a null collection.");
+        }
+        if (max < 0) {
+            throw new IllegalArgumentException("Cannot drain a negative number of items.");
+        }
+        int count = Math.min(max, n);
+        if (count == 0) {
+            return 0;
+        }
+        modCount++;
+        if (a != null) {
+            // subList views over the buffer let ArrayList-like targets copy each run in one arraycopy
+            List<Item> view = Arrays.asList(a);
+            int front = Math.min(count, a.length - head);
+            c.addAll(view.subList(head, head + front));
+            if (count > front) {
+                c.addAll(view.subList(0, count - front));
+            }
+            clearFront(count);
+            return count;
+        }
+        for (int i = 0; i < count; i++) {
+            c.add(first.item);
+            first = first.next;
+        }
+        unlinkFront(count);
+        return count;
+    }
+
+    // reject a null array, an out-of-range slice or a null item before anything is added
+    private void checkBulk(Item[] items, int off, int len) {
+        if (items == null) {
+            throw new IllegalArgumentException("Cannot add a null array.");
+        }
+        // off + len could overflow, so compare against the room left after off
+        if (off < 0 || len < 0 || off > items.length || len > items.length - off) {
+            throw new IllegalArgumentException("Range is out of bounds.");
+        }
+        if (len > Integer.MAX_VALUE - n) {
+            throw new IllegalStateException("The deque is too large.");
+        }
+        for (int i = off; i < off + len; i++) {
+            if (items[i] == null) {
+                throw new IllegalArgumentException("Cannot add a null argument.");
+            }
+        }
+    }
+
+    // drop count items from the front of the ring buffer after they were copied out
+    private void clearFront(int count) {
+        int front = Math.min(count, a.length - head);
+        Arrays.fill(a, head, head + front, null);
+        Arrays.fill(a, 0, count - front, null);
+        head = (head + count) & (a.length - 1);
+        n -= count;
+        int capacity = a.length;
+        while (n > 0 && n <= capacity / 4 && capacity > MIN_CAPACITY) {
+            capacity /= 2;
+        }
+        if (capacity != a.length) {
+            resize(capacity);
+        }
+    }
+
+    // fix up the linked list after first was advanced past count nodes
+    private void unlinkFront(int count) {
+        n -= count;
+        if (isEmpty()) {
+            last = null;
+        }
+        else {
+            first.prev = null;
+        }
+    }
+
+    // grow the ring buffer to the smallest power of two holding at least capacity items;
+    // 2^30 is the largest power of two an array can have
+    private void ensureCapacity(int capacity) {
+        if (capacity < 0 || capacity > 1 << 30) {
+            throw new IllegalStateException("The deque is too large.");
+        }
+        int size = a.length;
+        while (size < capacity) {
+            size *= 2;
+        }
+        if (size != a.length) {
+            resize(size);
+        }
+    }
+
+    // halve the ring buffer once it is a quarter full
+    private void shrink() {
+        if (n > 0 && n == a.length / 4 && a.length > MIN_CAPACITY) {
+            resize(a.length / 2);
+        }
+    }
+
+    // copy the ring buffer into a new array of the given power-of-two capacity, unwrapping it to start at 0
+    private void resize(int capacity) {
+        Item[] copy = (Item[]) new Object[capacity];
+        int front = Math.min(n, a.length - head);
+        System.arraycopy(a, head, copy, 0, front);
+        System.arraycopy(a, 0, copy, front, n - front);
+        a = copy;
+        head = 0;
+    }
+
     // return an iterator over items in order from front to back
     public Iterator<Item> iterator() {
+        if (a != null) {
+            return new ArrayIterator();
+        }
         return new DequeueIterator();
     }
 
     private class DequeueIterator implements Iterator<Item> {
 
         private Node current = first;
+        private final int expectedModCount = modCount;
 
         public boolean hasNext() {
             return current != null;
@@ -120,6 +384,9 @@ public class Deque<Item> implements Iterable<Item> {
             if (!hasNext()) {
                 throw new NoSuchElementException("There are no items.");
             }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException("The deque was modified.");
+            }
             Item item = current.item;
             current = current.next;
             return item;
@@ -130,6 +397,30 @@ public class Deque<Item> implements Iterable<Item> {
         }
     }
 
+    private class ArrayIterator implements Iterator<Item> {
+
+        private int i = 0;
+        private final int expectedModCount = modCount;
+
+        public boolean hasNext() {
+            return i < n;
+        }
+
+        public Item next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException("There are no items.");
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException("The deque was modified.");
+            }
+            return a[(head + i++) & (a.length - 1)];
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException("Remove is not supported.");
+        }
+    }
+
     // unit testing (required)
     public static void main(String[] args) {
         Deque<Integer> deque = new Deque<>();
@@ -152,6 +443,49 @@ public class Deque<Item> implements Iterable<Item> {
         for (int j : deque) {
             StdOut.print(j + " ");
         }
+        StdOut.print("\n");
+
+        Deque<Integer> ring = new Deque<>(true);
+        for (int i = 0; i < 10; i++) {
+            ring.addFirst(i);
+            ring.addLast(100 + i);
+        }
+        for (int j : ring) {
+            StdOut.print(j + " ");
+        }
+        StdOut.print("\n");
+        while (ring.size() > 2) {
+            StdOut.print(ring.removeFirst() + " ");
+            StdOut.print(ring.removeLast() + " ");
+        }
+        StdOut.print("\n");
+        StdOut.println(ring.size());
 
+        Integer[] batch = { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12 };
+        for (boolean arrayBacked : new boolean[] { false, true }) {
+            Deque<Integer> bulk = new Deque<>(arrayBacked);
+            bulk.addAllLast(batch, 0, 6);
+            bulk.addAllFirst(batch, 6, 6);
+            for (int j : bulk) {
+                StdOut.print(j + " ");
+            }
+            StdOut.print("\n");
+            Integer[] out = new Integer[5];
+            StdOut.print(bulk.removeFirst(out, 0, 5) + ": ");
+            for (int j : out) {
+                StdOut.print(j + " ");
+            }
+            StdOut.print("\n");
+            List<Integer> drained = new ArrayList<>();
+            StdOut.println(bulk.drainTo(drained, 100) + ": " + drained + " " + bulk.isEmpty());
+            try {
+                // off + len overflows int, which must not slip past the range check
+                bulk.addAllLast(new Integer[4], 1, Integer.MAX_VALUE);
+                StdOut.println("accepted an out-of-range slice");
+            }
+            catch (IllegalArgumentException e) {
+                StdOut.println("rejected: " + e.getMessage() + " " + bulk.size());
+            }
+        }
     }
 }
@@ -0,0 +1,168 @@
+import edu.princeton.cs.algs4.StdOut;
+
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+public class DoubleDeque implements Iterable<Double> {
+
+    private static final int MIN_CAPACITY = 8;
+
+    // circular buffer with power-of-two capacity so indices wrap with a mask
+    private double[] a;
+    private int head;
+    private int n;
+    private int modCount;
+
+    // construct an empty deque
+    public DoubleDeque() {
+        a = new double[MIN_CAPACITY];
+    }
+
+    // is the deque empty?
+    public boolean isEmpty() {
+        return n == 0;
+    }
+
+    // return the number of items on the deque
+    public int size() {
+        return n;
+    }
+
+    // add the item to the front
+    public void addFirst(double item) {
+        modCount++;
+        if (n == a.length) {
+            grow();
+        }
+        head = (head - 1) & (a.length - 1);
+        a[head] = item;
+        n++;
+    }
+
+    // add the item to the back
+    public void addLast(double item) {
+        modCount++;
+        if (n == a.length) {
+            grow();
+        }
+        a[(head + n) & (a.length - 1)] = item;
+        n++;
+    }
+
+    // remove and return the item from the front
+    public double removeFirst() {
+        if (isEmpty()) {
+            throw new NoSuchElementException("The deque is empty.");
+        }
+        modCount++;
+        double item = a[head];
+        head = (head + 1) & (a.length - 1);
+        n--;
+        shrink();
+        return item;
+    }
+
+    // remove and return the item from the back
+    public double removeLast() {
+        if (isEmpty()) {
+            throw new NoSuchElementException("The deque is empty.");
+        }
+        modCount++;
+        double item = a[(head + n - 1) & (a.length - 1)];
+        n--;
+        shrink();
+        return item;
+    }
+
+    // return the item at the front without removing it
+    public double peekFirst() {
+        if (isEmpty()) {
+            throw new NoSuchElementException("The deque is empty.");
+        }
+        return a[head];
+    }
+
+    // return the item at the back without removing it
+    public double peekLast() {
+        if (isEmpty()) {
+            throw new NoSuchElementException("The deque is empty.");
+        }
+        return a[(head + n - 1) & (a.length - 1)];
+    }
+
+    // halve the buffer once it is a quarter full
+    private void shrink() {
+        if (n > 0 && n == a.length / 4 && a.length > MIN_CAPACITY) {
+            resize(a.length / 2);
+        }
+    }
+
+    // double the ring buffer; 2^30 is the largest power of two an array can have
+    private void grow() {
+        if (a.length >= 1 << 30) {
+            throw new IllegalStateException("The deque is too large.");
+        }
+        resize(2 * a.length);
+    }
+
+    private void resize(int capacity) {
+        double[] copy = new double[capacity];
+        int front = Math.min(n, a.length - head);
+        System.arraycopy(a, head, copy, 0, front);
+        System.arraycopy(a, 0, copy, front, n - front);
+        a = copy;
+        head = 0;
+    }
+
+    // return an iterator over items in order from front to back
+    public PrimitiveIterator.OfDouble iterator() {
+        return new DoubleDequeIterator();
+    }
+
+    private class DoubleDequeIterator implements PrimitiveIterator.OfDouble {
+
+        private int i = 0;
+        private final int expectedModCount = modCount;
+
+        public boolean hasNext() {
+            return i < n;
+        }
+
+        public double nextDouble() {
+            if (!hasNext()) {
+                throw new NoSuchElementException("There are no items.");
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException("The deque was modified.");
+            }
+            return a[(head + i++) & (a.length - 1)];
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException("Remove is not supported.");
+        }
+    }
+
+    // unit testing
+    public static void main(String[] args) {
+        DoubleDeque deque = new DoubleDeque();
+        for (int i = 0; i < 10; i++) {
+            deque.addFirst(i);
+            deque.addLast(100 + i);
+        }
+        PrimitiveIterator.OfDouble it = deque.iterator();
+        while (it.hasNext()) {
+            StdOut.print(it.nextDouble() + " ");
+        }
+        StdOut.print("\n");
+        StdOut.println(deque.size());
+        StdOut.println(deque.peekFirst() + " " + deque.peekLast());
+        while (deque.size() > 2) {
+            StdOut.print(deque.removeFirst() + " ");
+            StdOut.print(deque.removeLast() + " ");
+        }
+        StdOut.print("\n");
+        StdOut.println(deque.isEmpty());
+    }
+}
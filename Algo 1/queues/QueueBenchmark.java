@@ -0,0 +1,262 @@
+import edu.princeton.cs.algs4.StdOut;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.SplittableRandom;
+import java.util.function.IntFunction;
+import java.util.random.RandomGenerator;
+import java.util.random.RandomGeneratorFactory;
+
+// Benchmark suite for Deque and RandomizedQueue, with java.util.ArrayDeque as the
+// baseline. Each workload gets a fresh queue from an untimed setup step, is warmed
+// up, then timed over several iterations; the median throughput and the bytes
+// allocated per operation (from the thread allocation counter, as JMH's gc
+// profiler reports) are printed.
+//
+//   java QueueBenchmark [sizes...]        e.g. java QueueBenchmark 1000 100000 1000000
+public class QueueBenchmark {
+
+    private static final int WARMUP = 3;
+    private static final int MEASURE = 5;
+    private static final Integer ITEM = 1;      // cached box, so workloads measure the queues' own allocation
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static long sink;
+
+    // one timed pass of a workload over a queue built by its setup; returns the
+    // number of operations performed
+    private interface Workload<S> {
+        long run(S queue, int size);
+    }
+
+    private static <S> void bench(String name, int size, IntFunction<S> setup, Workload<S> workload) {
+        for (int i = 0; i < WARMUP; i++) {
+            workload.run(setup.apply(size), size);
+        }
+        double[] opsPerSec = new double[MEASURE];
+        double bytesPerOp = 0.0;
+        long tid = Thread.currentThread().getId();
+        for (int i = 0; i < MEASURE; i++) {
+            S queue = setup.apply(size);
+            long bytes = THREADS.getThreadAllocatedBytes(tid);
+            long start = System.nanoTime();
+            long ops = workload.run(queue, size);
+            long elapsed = System.nanoTime() - start;
+            bytesPerOp += (double) (THREADS.getThreadAllocatedBytes(tid) - bytes) / ops;
+            opsPerSec[i] = ops / (elapsed / 1e9);
+        }
+        Arrays.sort(opsPerSec);
+        StdOut.printf("%-40s n=%-9d %10.2f Mops/s %8.2f B/op%n",
+                      name, size, opsPerSec[MEASURE / 2] / 1e6, bytesPerOp / MEASURE);
+    }
+
+    // alternate addFirst/addLast, then drain alternately from both ends
+    private static long dequeMix(Deque<Integer> d, int size) {
+        for (int i = 0; i < size; i++) {
+            if ((i & 1) == 0) {
+                d.addFirst(ITEM);
+            }
+            else {
+                d.addLast(ITEM);
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            sink += (i & 1) == 0 ? d.removeFirst() : d.removeLast();
+        }
+        return 2L * size;
+    }
+
+    private static long arrayDequeMix(ArrayDeque<Integer> d, int size) {
+        for (int i = 0; i < size; i++) {
+            if ((i & 1) == 0) {
+                d.addFirst(ITEM);
+            }
+            else {
+                d.addLast(ITEM);
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            sink += (i & 1) == 0 ? d.removeFirst() : d.removeLast();
+        }
+        return 2L * size;
+    }
+
+    // a steady-state FIFO window: keep size items queued while pushing size more through
+    private static long dequeQueue(Deque<Integer> d, int size) {
+        for (int i = 0; i < size; i++) {
+            d.addLast(ITEM);
+        }
+        for (int i = 0; i < size; i++) {
+            d.addLast(ITEM);
+            sink += d.removeFirst();
+        }
+        while (!d.isEmpty()) {
+            sink += d.removeFirst();
+        }
+        return 4L * size;
+    }
+
+    private static long arrayDequeQueue(ArrayDeque<Integer> d, int size) {
+        for (int i = 0; i < size; i++) {
+            d.addLast(ITEM);
+        }
+        for (int i = 0; i < size; i++) {
+            d.addLast(ITEM);
+            sink += d.removeFirst();
+        }
+        while (!d.isEmpty()) {
+            sink += d.removeFirst();
+        }
+        return 4L * size;
+    }
+
+    // grow to size and shrink back to empty several times, crossing every resize threshold
+    private static long dequeResize(Deque<Integer> d, int size) {
+        for (int cycle = 0; cycle < 4; cycle++) {
+            for (int i = 0; i < size; i++) {
+                d.addLast(ITEM);
+            }
+            for (int i = 0; i < size; i++) {
+                sink += d.removeLast();
+            }
+        }
+        return 8L * size;
+    }
+
+    // setup for the iteration workloads, which time only the iteration
+    private static Deque<Integer> filledDeque(int size, boolean arrayBacked) {
+        Deque<Integer> d = new Deque<>(arrayBacked);
+        for (int i = 0; i < size; i++) {
+            d.addLast(ITEM);
+        }
+        return d;
+    }
+
+    private static ArrayDeque<Integer> filledArrayDeque(int size) {
+        ArrayDeque<Integer> d = new ArrayDeque<>();
+        for (int i = 0; i < size; i++) {
+            d.addLast(ITEM);
+        }
+        return d;
+    }
+
+    private static RandomizedQueue<Integer> filledRandomizedQueue(int size) {
+        RandomizedQueue<Integer> rq = new RandomizedQueue<>(new SplittableRandom(1));
+        for (int i = 0; i < size; i++) {
+            rq.enqueue(ITEM);
+        }
+        return rq;
+    }
+
+    private static long dequeIterate(Deque<Integer> d, int size) {
+        for (int pass = 0; pass < 4; pass++) {
+            for (int x : d) {
+                sink += x;
+            }
+        }
+        return 4L * size;
+    }
+
+    private static long arrayDequeIterate(ArrayDeque<Integer> d, int size) {
+        for (int pass = 0; pass < 4; pass++) {
+            for (int x : d) {
+                sink += x;
+            }
+        }
+        return 4L * size;
+    }
+
+    // enqueue size items and dequeue them all at random, resizing up and back down
+    private static long rqFillDrain(RandomizedQueue<Integer> rq, int size) {
+        for (int i = 0; i < size; i++) {
+            rq.enqueue(ITEM);
+        }
+        for (int i = 0; i < size; i++) {
+            sink += rq.dequeue();
+        }
+        return 2L * size;
+    }
+
+    // steady state: alternate sample, dequeue and enqueue around a full queue
+    private static long rqMix(RandomizedQueue<Integer> rq, int size) {
+        for (int i = 0; i < size; i++) {
+            rq.enqueue(ITEM);
+        }
+        for (int i = 0; i < size; i++) {
+            sink += rq.sample();
+            rq.enqueue(rq.dequeue());
+        }
+        while (!rq.isEmpty()) {
+            sink += rq.dequeue();
+        }
+        return 5L * size;
+    }
+
+    private static long rqIterate(RandomizedQueue<Integer> rq, int size, boolean lazy) {
+        Iterator<Integer> it = lazy ? rq.lazyIterator() : rq.iterator();
+        while (it.hasNext()) {
+            sink += it.next();
+        }
+        return size;
+    }
+
+    // Permutation's reservoir loop: keep k of size streamed tokens
+    private static long permutation(RandomizedQueue<Integer> rq, int size, RandomGenerator random) {
+        int k = Math.max(1, size / 100);
+        for (int count = 1; count <= size; count++) {
+            if (count <= k) {
+                rq.enqueue(ITEM);
+            }
+            else if (random.nextInt(count) < k) {
+                sink += rq.dequeue();
+                rq.enqueue(ITEM);
+            }
+        }
+        while (!rq.isEmpty()) {
+            sink += rq.dequeue();
+        }
+        return size;
+    }
+
+    public static void main(String[] args) {
+        int[] sizes = { 1000, 100000, 1000000 };
+        if (args.length > 0) {
+            sizes = Arrays.stream(args).mapToInt(Integer::parseInt).toArray();
+        }
+        RandomGenerator xoshiro = RandomGeneratorFactory.of("Xoroshiro128PlusPlus").create(1);
+        for (int n : sizes) {
+            bench("Deque linked add/remove mix", n, size -> new Deque<Integer>(), QueueBenchmark::dequeMix);
+            bench("Deque ring add/remove mix", n, size -> new Deque<Integer>(true), QueueBenchmark::dequeMix);
+            bench("ArrayDeque add/remove mix", n, size -> new ArrayDeque<Integer>(), QueueBenchmark::arrayDequeMix);
+            bench("Deque linked FIFO window", n, size -> new Deque<Integer>(), QueueBenchmark::dequeQueue);
+            bench("Deque ring FIFO window", n, size -> new Deque<Integer>(true), QueueBenchmark::dequeQueue);
+            bench("ArrayDeque FIFO window", n, size -> new ArrayDeque<Integer>(), QueueBenchmark::arrayDequeQueue);
+            bench("Deque linked grow/shrink", n, size -> new Deque<Integer>(), QueueBenchmark::dequeResize);
+            bench("Deque ring grow/shrink", n, size -> new Deque<Integer>(true), QueueBenchmark::dequeResize);
+            bench("Deque linked iterate", n, size -> filledDeque(size, false), QueueBenchmark::dequeIterate);
+            bench("Deque ring iterate", n, size -> filledDeque(size, true), QueueBenchmark::dequeIterate);
+            bench("ArrayDeque iterate", n, QueueBenchmark::filledArrayDeque, QueueBenchmark::arrayDequeIterate);
+            bench("RandomizedQueue fill/drain StdRandom", n, size -> new RandomizedQueue<Integer>(),
+                  QueueBenchmark::rqFillDrain);
+            bench("RandomizedQueue fill/drain Splittable", n,
+                  size -> new RandomizedQueue<Integer>(new SplittableRandom(1)), QueueBenchmark::rqFillDrain);
+            bench("RandomizedQueue fill/drain Xoroshiro", n,
+                  size -> new RandomizedQueue<Integer>(xoshiro), QueueBenchmark::rqFillDrain);
+            bench("RandomizedQueue sample/dequeue mix", n,
+                  size -> new RandomizedQueue<Integer>(new SplittableRandom(1)), QueueBenchmark::rqMix);
+            bench("RandomizedQueue iterator", n, QueueBenchmark::filledRandomizedQueue,
+                  (rq, size) -> rqIterate(rq, size, false));
+            bench("RandomizedQueue lazyIterator", n, QueueBenchmark::filledRandomizedQueue,
+                  (rq, size) -> rqIterate(rq, size, true));
+            bench("Permutation reservoir (k = n/100)", n,
+                  size -> new RandomizedQueue<Integer>(new SplittableRandom(1)),
+                  (rq, size) -> permutation(rq, size, new SplittableRandom(2)));
+        }
+        if (sink == 42) {
+            StdOut.println();
+        }
+    }
+}
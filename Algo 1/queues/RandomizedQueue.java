@@ -1,16 +1,38 @@
 import edu.princeton.cs.algs4.StdOut;
 import edu.princeton.cs.algs4.StdRandom;
 
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+import java.util.function.IntFunction;
+import java.util.random.RandomGenerator;
 
 public class RandomizedQueue<Item> implements Iterable<Item> {
     private Item[] q;
     private int n = 0;
+    private final RandomGenerator random;   // null means the shared StdRandom
 
     // construct an empty randomized queue
     public RandomizedQueue() {
         q = (Item[]) new Object[1];
+        random = null;
+    }
+
+    // construct an empty randomized queue drawing from the given generator;
+    // the generator is not shared-safe unless it says so (ThreadLocalRandom.current()
+    // is fine when the queue stays on the thread that fetched it)
+    public RandomizedQueue(RandomGenerator random) {
+        if (random == null) {
+            throw new IllegalArgumentException("Cannot use a null generator.");
+        }
+        q = (Item[]) new Object[1];
+        this.random = random;
+    }
+
+    // construct an empty randomized queue whose choices are reproducible from the seed
+    public RandomizedQueue(long seed) {
+        this(new SplittableRandom(seed));
     }
 
     // is the randomized queue empty?
@@ -39,7 +61,7 @@ public class RandomizedQueue<Item> implements Iterable<Item> {
         if (n == 0) {
             throw new NoSuchElementException("The queue is empty.");
         }
-        int idx = StdRandom.uniform(n);
+        int idx = uniform(n);
         Item item = q[idx];
         if (idx < n - 1) {
             q[idx] = q[n - 1];
@@ -56,11 +78,100 @@ public class RandomizedQueue<Item> implements Iterable<Item> {
         if (n == 0) {
             throw new NoSuchElementException("The queue is empty.");
         }
-        int idx = StdRandom.uniform(n);
+        int idx = uniform(n);
         Item item = q[idx];
         return item;
     }
 
+    // remove and return k random items in a new array from generator, as in
+    // Collection.toArray(IntFunction), e.g. rq.dequeue(k, Integer[]::new)
+    public Item[] dequeue(int k, IntFunction<Item[]> generator) {
+        Item[] items = newBatch(k, generator);
+        dequeue(items, k);
+        return items;
+    }
+
+    // remove k random items into dst[0..k), shrinking the array at most once
+    public void dequeue(Item[] dst, int k) {
+        checkBatch(dst, k);
+        if (k > n) {
+            throw new NoSuchElementException("The queue has fewer than k items.");
+        }
+        for (int i = 0; i < k; i++) {
+            int idx = uniform(n);
+            dst[i] = q[idx];
+            q[idx] = q[--n];
+            q[n] = null;
+        }
+        int capacity = q.length;
+        while (n > 0 && n <= capacity / 4) {
+            capacity /= 2;
+        }
+        if (capacity != q.length) {
+            resize(capacity);
+        }
+    }
+
+    // return k random items (but do not remove them) in a new array from generator
+    public Item[] sample(int k, boolean withReplacement, IntFunction<Item[]> generator) {
+        Item[] items = newBatch(k, generator);
+        sample(items, k, withReplacement);
+        return items;
+    }
+
+    // write k random items into dst[0..k); without replacement this is a partial
+    // Fisher-Yates over a sparse swap map, so the queue itself is not reordered
+    public void sample(Item[] dst, int k, boolean withReplacement) {
+        checkBatch(dst, k);
+        if (k > 0 && n == 0) {
+            throw new NoSuchElementException("The queue is empty.");
+        }
+        if (withReplacement) {
+            for (int i = 0; i < k; i++) {
+                dst[i] = q[uniform(n)];
+            }
+            return;
+        }
+        if (k > n) {
+            throw new IllegalArgumentException("Cannot sample more than size() items without replacement.");
+        }
+        IntIntMap swapped = new IntIntMap();
+        for (int i = 0; i < k; i++) {
+            int j = i + uniform(n - i);
+            dst[i] = q[swapped.get(j, j)];
+            if (j != i) {
+                swapped.put(j, swapped.get(i, i));
+            }
+        }
+    }
+
+    private Item[] newBatch(int k, IntFunction<Item[]> generator) {
+        if (generator == null) {
+            throw new IllegalArgumentException("Cannot use a null array generator.");
+        }
+        if (k < 0) {
+            throw new IllegalArgumentException("k is out of bounds.");
+        }
+        return generator.apply(k);
+    }
+
+    private void checkBatch(Item[] dst, int k) {
+        if (dst == null) {
+            throw new IllegalArgumentException("Cannot copy into a null array.");
+        }
+        if (k < 0 || k > dst.length) {
+            throw new IllegalArgumentException("k is out of bounds.");
+        }
+    }
+
+    // uniformly random index in [0, bound)
+    private int uniform(int bound) {
+        if (random == null) {
+            return StdRandom.uniform(bound);
+        }
+        return random.nextInt(bound);
+    }
+
     // return an independent iterator over items in random order
     public Iterator<Item> iterator() {
         return new RQIterator();
@@ -75,7 +186,17 @@ public class RandomizedQueue<Item> implements Iterable<Item> {
             for (int i = 0; i < n; i++) {
                 indices[i] = i;
             }
-            StdRandom.shuffle(indices);
+            if (random == null) {
+                StdRandom.shuffle(indices);
+            }
+            else {
+                for (int i = n - 1; i > 0; i--) {
+                    int j = random.nextInt(i + 1);
+                    int swap = indices[i];
+                    indices[i] = indices[j];
+                    indices[j] = swap;
+                }
+            }
         }
 
         public boolean hasNext() {
@@ -94,6 +215,95 @@ public class RandomizedQueue<Item> implements Iterable<Item> {
         }
     }
 
+    // return an independent iterator over items in random order that shuffles as it goes,
+    // so its cost is proportional to the number of items actually read
+    public Iterator<Item> lazyIterator() {
+        return new LazyRQIterator();
+    }
+
+    // incremental Fisher-Yates over a virtual identity array: only the slots that
+    // have been swapped away from their own index are stored, in a sparse map
+    private class LazyRQIterator implements Iterator<Item> {
+
+        private int count = 0;
+        private final IntIntMap swapped = new IntIntMap();
+
+        public boolean hasNext() {
+            return count < n;
+        }
+
+        public Item next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException("There are no items.");
+            }
+            int j = count + uniform(n - count);
+            int idx = swapped.get(j, j);
+            if (j != count) {
+                swapped.put(j, swapped.get(count, count));
+            }
+            count++;
+            return q[idx];
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException("Remove is not supported.");
+        }
+    }
+
+    // open-addressing map from non-negative int keys to int values, with linear probing
+    private static class IntIntMap {
+        private static final int EMPTY = -1;
+        private int[] keys = newKeys(16);
+        private int[] vals = new int[16];
+        private int size = 0;
+
+        private static int[] newKeys(int capacity) {
+            int[] k = new int[capacity];
+            Arrays.fill(k, EMPTY);
+            return k;
+        }
+
+        private int slot(int key, int[] k) {
+            int i = (key * 0x9E3779B9) & (k.length - 1);
+            while (k[i] != EMPTY && k[i] != key) {
+                i = (i + 1) & (k.length - 1);
+            }
+            return i;
+        }
+
+        int get(int key, int missing) {
+            int i = slot(key, keys);
+            return keys[i] == EMPTY ? missing : vals[i];
+        }
+
+        void put(int key, int val) {
+            int i = slot(key, keys);
+            if (keys[i] == EMPTY) {
+                if (2 * (size + 1) > keys.length) {
+                    grow();
+                    i = slot(key, keys);
+                }
+                keys[i] = key;
+                size++;
+            }
+            vals[i] = val;
+        }
+
+        private void grow() {
+            int[] oldKeys = keys;
+            int[] oldVals = vals;
+            keys = newKeys(2 * oldKeys.length);
+            vals = new int[2 * oldKeys.length];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    int j = slot(oldKeys[i], keys);
+                    keys[j] = oldKeys[i];
+                    vals[j] = oldVals[i];
+                }
+            }
+        }
+    }
+
     private void resize(int capacity) {
         Item[] copy = (Item[]) new Object[capacity];
         for (int i = 0; i < n; i++) {
@@ -119,5 +329,36 @@ public class RandomizedQueue<Item> implements Iterable<Item> {
         for (int i : rq) {
             StdOut.print(i + " ");
         }
+        StdOut.print("\n");
+
+        // the same seed gives the same sequence of choices
+        RandomizedQueue<Integer> a = new RandomizedQueue<>(42L);
+        RandomizedQueue<Integer> b = new RandomizedQueue<>(42L);
+        for (int i = 0; i < 10; i++) {
+            a.enqueue(i);
+            b.enqueue(i);
+        }
+        while (!a.isEmpty()) {
+            StdOut.print((a.dequeue().equals(b.dequeue()) ? "=" : "!") + " ");
+        }
+        StdOut.print("\n");
+
+        Integer[] batch = new Integer[3];
+        rq.sample(batch, 3, false);
+        StdOut.println(Arrays.toString(batch));
+        rq.sample(batch, 3, true);
+        StdOut.println(Arrays.toString(batch));
+        rq.dequeue(batch, 3);
+        StdOut.println(Arrays.toString(batch) + " " + rq.size());
+        Integer[] typed = rq.sample(2, false, Integer[]::new);
+        StdOut.println(Arrays.toString(typed));
+        typed = rq.dequeue(2, Integer[]::new);
+        StdOut.println(Arrays.toString(typed) + " " + rq.size());
+
+        Iterator<Integer> lazy = rq.lazyIterator();
+        while (lazy.hasNext()) {
+            StdOut.print(lazy.next() + " ");
+        }
+        StdOut.print("\n");
     }
 }
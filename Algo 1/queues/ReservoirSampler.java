@@ -0,0 +1,445 @@
+import edu.princeton.cs.algs4.StdOut;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import java.util.function.ToDoubleFunction;
+import java.util.random.RandomGenerator;
+import java.util.stream.IntStream;
+
+// Streaming reservoir sampling over the lines of an InputStream or a file, the
+// engine behind what Permutation does one token at a time. Bytes are scanned in
+// large chunks and a line is only decoded into a String once it is chosen.
+// Uniform samples use Algorithm L, which jumps straight to the next line that
+// enters the reservoir; weighted samples use A-ExpJ. A file can be split into
+// shards that are sampled in parallel and merged at the end.
+public class ReservoirSampler {
+
+    private static final int CHUNK = 1 << 16;            // InputStream read size
+    private static final long WINDOW = 1L << 28;          // bytes mapped at a time
+
+    // return min(k, lines) lines chosen uniformly at random, in random order
+    public static String[] sample(InputStream in, int k, RandomGenerator random) throws IOException {
+        checkArgs(k, random);
+        Uniform r = new Uniform(k, random);
+        scan(in, r);
+        return r.shuffled();
+    }
+
+    // return min(k, lines) lines of the file chosen uniformly at random, scanning
+    // the given number of shards in parallel; reproducible for a fixed seed and shard count
+    public static String[] sample(Path file, int k, int shards, long seed) throws IOException {
+        checkArgs(k, shards);
+        SplittableRandom root = new SplittableRandom(seed);
+        Uniform[] parts = new Uniform[shards];
+        for (int s = 0; s < shards; s++) {
+            parts[s] = new Uniform(k, root.split());
+        }
+        scanShards(file, parts);
+        Uniform merged = parts[0];
+        for (int s = 1; s < shards; s++) {
+            merged = Uniform.merge(merged, parts[s], root);
+        }
+        return merged.shuffled();
+    }
+
+    // return min(k, lines) lines chosen without replacement with probability
+    // proportional to weight(line), which must be positive
+    public static String[] sampleWeighted(InputStream in, int k, ToDoubleFunction<String> weight,
+                                          RandomGenerator random) throws IOException {
+        checkArgs(k, random);
+        if (weight == null) {
+            throw new IllegalArgumentException("Cannot use a null weight function.");
+        }
+        Weighted r = new Weighted(k, weight, random);
+        scan(in, r);
+        return Weighted.merge(new Weighted[] { r }, k);
+    }
+
+    // weighted sampling over the lines of a file, scanning shards in parallel
+    public static String[] sampleWeighted(Path file, int k, ToDoubleFunction<String> weight,
+                                          int shards, long seed) throws IOException {
+        checkArgs(k, shards);
+        if (weight == null) {
+            throw new IllegalArgumentException("Cannot use a null weight function.");
+        }
+        SplittableRandom root = new SplittableRandom(seed);
+        Weighted[] parts = new Weighted[shards];
+        for (int s = 0; s < shards; s++) {
+            parts[s] = new Weighted(k, weight, root.split());
+        }
+        scanShards(file, parts);
+        return Weighted.merge(parts, k);
+    }
+
+    private static void checkArgs(int k, RandomGenerator random) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must be non-negative.");
+        }
+        if (random == null) {
+            throw new IllegalArgumentException("Cannot use a null generator.");
+        }
+    }
+
+    private static void checkArgs(int k, int shards) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must be non-negative.");
+        }
+        if (shards <= 0) {
+            throw new IllegalArgumentException("Need at least one shard.");
+        }
+    }
+
+    private static void scan(InputStream in, Reservoir r) throws IOException {
+        if (in == null) {
+            throw new IllegalArgumentException("Cannot read a null stream.");
+        }
+        LineScanner scanner = new LineScanner(r);
+        byte[] chunk = new byte[CHUNK];
+        ByteBuffer buf = ByteBuffer.wrap(chunk);
+        int read;
+        while ((read = in.read(chunk)) != -1) {
+            buf.clear().limit(read);
+            scanner.feed(buf);
+        }
+        scanner.finish();
+    }
+
+    // split the file at line boundaries and feed each shard to its own reservoir in parallel
+    private static void scanShards(Path file, Reservoir[] parts) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long[] bounds = new long[parts.length + 1];
+            bounds[parts.length] = size;
+            for (int s = 1; s < parts.length; s++) {
+                bounds[s] = nextLineStart(channel, Math.max(bounds[s - 1], size * s / parts.length));
+            }
+            try {
+                IntStream.range(0, parts.length).parallel().forEach(s -> {
+                    try {
+                        LineScanner scanner = new LineScanner(parts[s]);
+                        for (long p = bounds[s]; p < bounds[s + 1]; p += WINDOW) {
+                            long len = Math.min(WINDOW, bounds[s + 1] - p);
+                            scanner.feed(channel.map(FileChannel.MapMode.READ_ONLY, p, len));
+                        }
+                        scanner.finish();
+                    }
+                    catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+            catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    // offset just past the first '\n' at or after pos, or the file size if there is none
+    private static long nextLineStart(FileChannel channel, long pos) throws IOException {
+        if (pos == 0) {
+            return 0;
+        }
+        ByteBuffer buf = ByteBuffer.allocate(CHUNK);
+        long p = pos - 1;
+        while (true) {
+            buf.clear();
+            int read = channel.read(buf, p);
+            if (read <= 0) {
+                return channel.size();
+            }
+            for (int i = 0; i < read; i++) {
+                if (buf.get(i) == '\n') {
+                    return p + i + 1;
+                }
+            }
+            p += read;
+        }
+    }
+
+    // a reservoir says which line it needs next, so the scanner can skip the rest undecoded
+    private abstract static class Reservoir {
+        long lines;     // lines seen, set when the scan finishes
+
+        // index of the next line that must be passed to accept, or Long.MAX_VALUE for none
+        abstract long nextWanted();
+
+        abstract void accept(String line);
+    }
+
+    // Algorithm L (Li 1994): after the reservoir fills, the gap to the next
+    // replacement is geometric, so only O(k(1 + log(N/k))) random numbers are drawn
+    private static final class Uniform extends Reservoir {
+        private final String[] items;
+        private final RandomGenerator random;
+        private int count = 0;
+        private double w;
+        private long next = 0;
+
+        Uniform(int k, RandomGenerator random) {
+            items = new String[k];
+            this.random = random;
+            if (k == 0) {
+                next = Long.MAX_VALUE;
+            }
+        }
+
+        long nextWanted() {
+            return next;
+        }
+
+        void accept(String line) {
+            int k = items.length;
+            if (count < k) {
+                items[count++] = line;
+                if (count < k) {
+                    next++;
+                    return;
+                }
+                w = Math.exp(Math.log(uniform()) / k);
+            }
+            else {
+                items[random.nextInt(k)] = line;
+                w *= Math.exp(Math.log(uniform()) / k);
+            }
+            long skip = (long) Math.floor(Math.log(uniform()) / Math.log1p(-w));
+            next = skip >= Long.MAX_VALUE - next - 1 ? Long.MAX_VALUE : next + skip + 1;
+        }
+
+        // uniform in (0, 1], so its logarithm is finite
+        private double uniform() {
+            return 1.0 - random.nextDouble();
+        }
+
+        String[] shuffled() {
+            String[] out = Arrays.copyOf(items, count);
+            for (int i = count - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                String swap = out[i];
+                out[i] = out[j];
+                out[j] = swap;
+            }
+            return out;
+        }
+
+        // combine uniform samples of two disjoint streams: each output slot comes
+        // from a side with probability proportional to its unsampled line count,
+        // and takes a random remaining item from that side's reservoir
+        static Uniform merge(Uniform a, Uniform b, RandomGenerator random) {
+            int k = a.items.length;
+            Uniform out = new Uniform(k, random);
+            String[] left = Arrays.copyOf(a.items, a.count);
+            String[] right = Arrays.copyOf(b.items, b.count);
+            int nl = left.length;
+            int nr = right.length;
+            long remainingLeft = a.lines;
+            long remainingRight = b.lines;
+            while (out.count < k && remainingLeft + remainingRight > 0) {
+                double p = (double) remainingLeft / (remainingLeft + remainingRight);
+                if (random.nextDouble() < p) {
+                    int j = random.nextInt(nl);
+                    out.items[out.count++] = left[j];
+                    left[j] = left[--nl];
+                    remainingLeft--;
+                }
+                else {
+                    int j = random.nextInt(nr);
+                    out.items[out.count++] = right[j];
+                    right[j] = right[--nr];
+                    remainingRight--;
+                }
+            }
+            out.lines = a.lines + b.lines;
+            return out;
+        }
+    }
+
+    // A-ExpJ (Efraimidis and Spirakis 2006): keeps the k largest keys u^(1/weight)
+    // and jumps over a random amount of weight between replacements; keys are kept
+    // as logarithms, log(u) / weight, to stay accurate for large weights
+    private static final class Weighted extends Reservoir {
+        private final int k;
+        private final ToDoubleFunction<String> weight;
+        private final RandomGenerator random;
+        private final PriorityQueue<Entry> heap = new PriorityQueue<>();
+        private long seen = 0;
+        private double skip;            // weight still to pass before the next replacement
+
+        Weighted(int k, ToDoubleFunction<String> weight, RandomGenerator random) {
+            this.k = k;
+            this.weight = weight;
+            this.random = random;
+        }
+
+        long nextWanted() {
+            return k == 0 ? Long.MAX_VALUE : seen;
+        }
+
+        void accept(String line) {
+            seen++;
+            double wt = weight.applyAsDouble(line);
+            if (!(wt > 0.0) || Double.isInfinite(wt)) {
+                throw new IllegalArgumentException("Weight must be positive and finite: " + line);
+            }
+            if (heap.size() < k) {
+                heap.add(new Entry(Math.log(uniform()) / wt, line));
+                if (heap.size() == k) {
+                    skip = Math.log(uniform()) / heap.peek().key;
+                }
+                return;
+            }
+            skip -= wt;
+            if (skip > 0) {
+                return;
+            }
+            // the new key is uniform in (threshold^wt, 1], raised to 1/wt
+            double tw = Math.exp(wt * heap.peek().key);
+            double u = tw + (1.0 - tw) * random.nextDouble();
+            heap.poll();
+            heap.add(new Entry(Math.log(u) / wt, line));
+            skip = Math.log(uniform()) / heap.peek().key;
+        }
+
+        private double uniform() {
+            return 1.0 - random.nextDouble();
+        }
+
+        // the weighted sample of the union is the k largest keys across all shards
+        static String[] merge(Weighted[] parts, int k) {
+            PriorityQueue<Entry> best = new PriorityQueue<>();
+            for (Weighted part : parts) {
+                for (Entry e : part.heap) {
+                    best.add(e);
+                    if (best.size() > k) {
+                        best.poll();
+                    }
+                }
+            }
+            String[] out = new String[best.size()];
+            for (int i = out.length - 1; i >= 0; i--) {
+                out[i] = best.poll().line;
+            }
+            return out;
+        }
+
+        private static final class Entry implements Comparable<Entry> {
+            final double key;
+            final String line;
+
+            Entry(double key, String line) {
+                this.key = key;
+                this.line = line;
+            }
+
+            public int compareTo(Entry that) {
+                return Double.compare(key, that.key);
+            }
+        }
+    }
+
+    // splits a byte stream fed in chunks into '\n'-terminated lines, counting the
+    // lines a reservoir does not want and decoding only the ones it does
+    private static final class LineScanner {
+        private final Reservoir r;
+        private long line = 0;
+        private long want;
+        private byte[] partial = new byte[256];
+        private int partialLen = 0;
+        private boolean midLine = false;    // bytes of the current line have been seen
+
+        LineScanner(Reservoir r) {
+            this.r = r;
+            want = r.nextWanted();
+        }
+
+        void feed(ByteBuffer buf) {
+            int i = buf.position();
+            int end = buf.limit();
+            while (i < end) {
+                if (line == want) {
+                    int start = i;
+                    while (i < end && buf.get(i) != '\n') {
+                        i++;
+                    }
+                    append(buf, start, i);
+                    midLine = true;
+                    if (i == end) {
+                        return;
+                    }
+                    emit();
+                    i++;
+                }
+                else {
+                    while (i < end && line < want) {
+                        if (buf.get(i++) == '\n') {
+                            line++;
+                            midLine = false;
+                        }
+                        else {
+                            midLine = true;
+                        }
+                    }
+                }
+            }
+        }
+
+        // count a final line that has no terminating '\n'
+        void finish() {
+            if (midLine) {
+                if (line == want) {
+                    emit();
+                }
+                else {
+                    line++;
+                }
+            }
+            r.lines = line;
+        }
+
+        private void append(ByteBuffer buf, int from, int to) {
+            int len = to - from;
+            if (partialLen + len > partial.length) {
+                partial = Arrays.copyOf(partial, Math.max(2 * partial.length, partialLen + len));
+            }
+            buf.get(from, partial, partialLen, len);
+            partialLen += len;
+        }
+
+        private void emit() {
+            int len = partialLen;
+            if (len > 0 && partial[len - 1] == '\r') {
+                len--;
+            }
+            r.accept(new String(partial, 0, len, StandardCharsets.UTF_8));
+            partialLen = 0;
+            midLine = false;
+            line++;
+            want = r.nextWanted();
+        }
+    }
+
+    // print k random lines of standard input, or of a file scanned in parallel shards
+    public static void main(String[] args) throws IOException {
+        int k = Integer.parseInt(args[0]);
+        String[] lines;
+        if (args.length > 1) {
+            int shards = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+            lines = sample(Paths.get(args[1]), k, shards, System.nanoTime());
+        }
+        else {
+            lines = sample(System.in, k, new SplittableRandom());
+        }
+        for (String line : lines) {
+            StdOut.println(line);
+        }
+    }
+}
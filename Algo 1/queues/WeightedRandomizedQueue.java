@@ -0,0 +1,258 @@
+import edu.princeton.cs.algs4.StdOut;
+import edu.princeton.cs.algs4.StdRandom;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+
+// Randomized queue that removes each item with probability proportional to its
+// weight. Weights live next to the items in a sum tree whose internal nodes are
+// recomputed from their children on every update, so enqueue, dequeue, sample
+// and weight updates all take O(log n) and rounding error never accumulates.
+public class WeightedRandomizedQueue<Item> {
+    private Item[] q;
+    private double[] w;          // w[i] is the weight of q[i]
+    private double[] tree;       // tree[1] is the root, tree[q.length + i] is w[i], tree[k] = tree[2k] + tree[2k + 1]
+    private int[] handleAt;      // handleAt[i] is the handle of q[i]
+    private int[] pos;           // pos[h] is the index of handle h, or -1 once removed
+    private int[] free;          // stack of handles available for reuse
+    private int freeCount = 0;
+    private int handles = 0;     // number of handles ever issued
+    private int n = 0;
+    private final RandomGenerator random;   // null means the shared StdRandom
+
+    // construct an empty weighted randomized queue
+    public WeightedRandomizedQueue() {
+        q = (Item[]) new Object[1];
+        w = new double[1];
+        tree = new double[2];
+        handleAt = new int[1];
+        pos = new int[1];
+        free = new int[1];
+        random = null;
+    }
+
+    // construct an empty weighted randomized queue drawing from the given generator
+    public WeightedRandomizedQueue(RandomGenerator random) {
+        if (random == null) {
+            throw new IllegalArgumentException("Cannot use a null generator.");
+        }
+        q = (Item[]) new Object[1];
+        w = new double[1];
+        tree = new double[2];
+        handleAt = new int[1];
+        pos = new int[1];
+        free = new int[1];
+        this.random = random;
+    }
+
+    // construct an empty weighted randomized queue whose choices are reproducible from the seed
+    public WeightedRandomizedQueue(long seed) {
+        this(new SplittableRandom(seed));
+    }
+
+    // is the queue empty?
+    public boolean isEmpty() {
+        return n == 0;
+    }
+
+    // return the number of items on the queue
+    public int size() {
+        return n;
+    }
+
+    // return the sum of the weights of all items
+    public double totalWeight() {
+        return tree[1];
+    }
+
+    // add the item with a positive weight; returns a handle for weight(int) and setWeight(int, double)
+    // that stays valid until the item is dequeued
+    public int enqueue(Item item, double weight) {
+        if (item == null) {
+            throw new IllegalArgumentException("Cannot add a null argument.");
+        }
+        checkWeight(weight);
+        if (n == q.length) {
+            resize(2 * q.length);
+        }
+        int handle;
+        if (freeCount > 0) {
+            handle = free[--freeCount];
+        }
+        else {
+            if (handles == pos.length) {
+                int[] copy = new int[2 * pos.length];
+                System.arraycopy(pos, 0, copy, 0, handles);
+                pos = copy;
+            }
+            handle = handles++;
+        }
+        q[n] = item;
+        w[n] = weight;
+        handleAt[n] = handle;
+        pos[handle] = n;
+        set(n, weight);
+        n++;
+        return handle;
+    }
+
+    // remove and return a random item, chosen with probability proportional to its weight
+    public Item dequeue() {
+        if (n == 0) {
+            throw new NoSuchElementException("The queue is empty.");
+        }
+        int idx = select();
+        Item item = q[idx];
+        int last = n - 1;
+
+        // move the last item into the hole, as RandomizedQueue.dequeue does
+        set(idx, w[last]);
+        set(last, 0.0);
+        releaseHandle(handleAt[idx]);
+        if (idx < last) {
+            q[idx] = q[last];
+            w[idx] = w[last];
+            handleAt[idx] = handleAt[last];
+            pos[handleAt[idx]] = idx;
+        }
+        q[last] = null;
+        w[last] = 0.0;
+        n--;
+        if (n > 0 && n == q.length / 4) {
+            resize(q.length / 2);
+        }
+        return item;
+    }
+
+    // return a random item (but do not remove it), chosen with probability proportional to its weight
+    public Item sample() {
+        if (n == 0) {
+            throw new NoSuchElementException("The queue is empty.");
+        }
+        return q[select()];
+    }
+
+    // return the weight of the item with the given handle
+    public double weight(int handle) {
+        return w[indexOf(handle)];
+    }
+
+    // change the weight of the item with the given handle
+    public void setWeight(int handle, double weight) {
+        checkWeight(weight);
+        int idx = indexOf(handle);
+        w[idx] = weight;
+        set(idx, weight);
+    }
+
+    private int indexOf(int handle) {
+        if (handle < 0 || handle >= handles || pos[handle] < 0) {
+            throw new IllegalArgumentException("Unknown or dequeued handle.");
+        }
+        return pos[handle];
+    }
+
+    private void releaseHandle(int handle) {
+        pos[handle] = -1;
+        if (freeCount == free.length) {
+            int[] copy = new int[2 * free.length];
+            System.arraycopy(free, 0, copy, 0, freeCount);
+            free = copy;
+        }
+        free[freeCount++] = handle;
+    }
+
+    private static void checkWeight(double weight) {
+        if (!(weight > 0.0) || Double.isInfinite(weight)) {
+            throw new IllegalArgumentException("Weight must be positive and finite.");
+        }
+    }
+
+    // set the leaf of item i to weight and recompute the sums above it from their
+    // children, rather than adding a difference, so no rounding error is carried over
+    private void set(int i, double weight) {
+        int k = q.length + i;
+        tree[k] = weight;
+        for (k >>= 1; k > 0; k >>= 1) {
+            tree[k] = tree[2 * k] + tree[2 * k + 1];
+        }
+    }
+
+    // descend the sum tree to the item whose cumulative weight range holds a uniform draw
+    private int select() {
+        double r = (random == null ? StdRandom.uniform() : random.nextDouble()) * tree[1];
+        int k = 1;
+        while (k < q.length) {
+            k *= 2;
+            if (r >= tree[k]) {
+                r -= tree[k];
+                k++;
+            }
+        }
+        // rounding can push the draw just past the last item
+        return Math.min(k - q.length, n - 1);
+    }
+
+    // move the first n items to arrays of the given capacity (a power of two) and rebuild the tree in O(n)
+    private void resize(int capacity) {
+        Item[] copy = (Item[]) new Object[capacity];
+        double[] weights = new double[capacity];
+        int[] handleCopy = new int[capacity];
+        System.arraycopy(q, 0, copy, 0, n);
+        System.arraycopy(w, 0, weights, 0, n);
+        System.arraycopy(handleAt, 0, handleCopy, 0, n);
+        q = copy;
+        w = weights;
+        handleAt = handleCopy;
+        tree = new double[2 * capacity];
+        System.arraycopy(w, 0, tree, capacity, n);
+        for (int k = capacity - 1; k > 0; k--) {
+            tree[k] = tree[2 * k] + tree[2 * k + 1];
+        }
+    }
+
+    // unit testing
+    public static void main(String[] args) {
+        WeightedRandomizedQueue<String> wq = new WeightedRandomizedQueue<>(7L);
+        int a = wq.enqueue("a", 1.0);
+        wq.enqueue("b", 2.0);
+        wq.enqueue("c", 7.0);
+        StdOut.println(wq.size() + " " + wq.totalWeight());
+
+        int[] counts = new int[3];
+        for (int i = 0; i < 100000; i++) {
+            counts[wq.sample().charAt(0) - 'a']++;
+        }
+        StdOut.println(counts[0] + " " + counts[1] + " " + counts[2]);
+
+        wq.setWeight(a, 7.0);
+        counts = new int[3];
+        for (int i = 0; i < 100000; i++) {
+            counts[wq.sample().charAt(0) - 'a']++;
+        }
+        StdOut.println(counts[0] + " " + counts[1] + " " + counts[2]);
+
+        while (!wq.isEmpty()) {
+            StdOut.print(wq.dequeue() + " ");
+        }
+        StdOut.print("\n");
+
+        // lowering a huge weight must not leave the small ones swamped by rounding
+        WeightedRandomizedQueue<Integer> skew = new WeightedRandomizedQueue<>(11L);
+        for (int i = 0; i < 7; i++) {
+            skew.enqueue(i, 1.0);
+        }
+        int big = skew.enqueue(7, 1e17);
+        for (int i = 8; i < 12; i++) {
+            skew.enqueue(i, 1.0);
+        }
+        skew.setWeight(big, 1.0);
+        int[] hits = new int[12];
+        for (int i = 0; i < 120000; i++) {
+            hits[skew.sample()]++;
+        }
+        StdOut.println(skew.totalWeight() + " " + Arrays.toString(hits));
+    }
+}
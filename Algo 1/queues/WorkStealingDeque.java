@@ -0,0 +1,221 @@
+import edu.princeton.cs.algs4.StdOut;
+
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Chase-Lev work-stealing deque. A single owner thread calls push() and pop()
+// at the bottom without taking a lock; any number of thief threads call steal()
+// at the top, and only the race for the last remaining item needs a CAS.
+public class WorkStealingDeque<Item> {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private final AtomicLong top = new AtomicLong();
+    private volatile long bottom;
+    private volatile AtomicReferenceArray<Item> a;
+
+    // construct an empty deque
+    public WorkStealingDeque() {
+        a = new AtomicReferenceArray<>(MIN_CAPACITY);
+    }
+
+    // is the deque empty? (a snapshot, which may be stale under contention)
+    public boolean isEmpty() {
+        return bottom <= top.get();
+    }
+
+    // return the number of items on the deque (a snapshot, which may be stale under contention)
+    public int size() {
+        long n = bottom - top.get();
+        return n < 0 ? 0 : (int) n;
+    }
+
+    // add the item to the bottom; owner thread only
+    public void push(Item item) {
+        if (item == null) {
+            throw new IllegalArgumentException("Cannot add a null argument.");
+        }
+        long b = bottom;
+        long t = top.get();
+        AtomicReferenceArray<Item> array = a;
+        if (b - t > array.length() - 1) {
+            array = resize(array, b, t);
+        }
+        array.set((int) (b & (array.length() - 1)), item);
+        bottom = b + 1;
+    }
+
+    // remove and return the item at the bottom, or null if the deque is empty; owner thread only
+    public Item pop() {
+        long b = bottom - 1;
+        AtomicReferenceArray<Item> array = a;
+        bottom = b;
+        long t = top.get();
+        if (t > b) {
+            bottom = b + 1;
+            return null;
+        }
+        int idx = (int) (b & (array.length() - 1));
+        Item item = array.get(idx);
+        if (t == b) {
+            // last item: race the thieves for it
+            if (!top.compareAndSet(t, t + 1)) {
+                item = null;
+            }
+            bottom = b + 1;
+        }
+        else {
+            array.set(idx, null);
+        }
+        return item;
+    }
+
+    // remove and return the item at the top, or null if the deque is empty or
+    // another thread won the race for that item; safe to call from any thread
+    public Item steal() {
+        long t = top.get();
+        long b = bottom;
+        if (t >= b) {
+            return null;
+        }
+        AtomicReferenceArray<Item> array = a;
+        Item item = array.get((int) (t & (array.length() - 1)));
+        if (!top.compareAndSet(t, t + 1)) {
+            return null;
+        }
+        return item;
+    }
+
+    // double the circular array; thieves keep reading the old array safely because
+    // its live slots are never written again
+    private AtomicReferenceArray<Item> resize(AtomicReferenceArray<Item> old, long b, long t) {
+        AtomicReferenceArray<Item> copy = new AtomicReferenceArray<>(2 * old.length());
+        for (long i = t; i < b; i++) {
+            copy.set((int) (i & (copy.length() - 1)), old.get((int) (i & (old.length() - 1))));
+        }
+        a = copy;
+        return copy;
+    }
+
+    // simulated work for one job
+    private static long work(int depth) {
+        long h = depth;
+        for (int i = 0; i < 200; i++) {
+            h = h * 6364136223846793005L + 1442695040888963407L;
+        }
+        return h;
+    }
+
+    // run a binary fork tree of 2^(depth+1) - 1 jobs with per-worker stealing deques;
+    // returns jobs per second
+    private static double benchStealing(int workers, int depth) throws InterruptedException {
+        long total = (1L << (depth + 1)) - 1;
+        LongAdder done = new LongAdder();
+        WorkStealingDeque<Integer>[] deques = new WorkStealingDeque[workers];
+        for (int w = 0; w < workers; w++) {
+            deques[w] = new WorkStealingDeque<>();
+        }
+        deques[0].push(depth);
+        Thread[] threads = new Thread[workers];
+        for (int w = 0; w < workers; w++) {
+            final int self = w;
+            threads[w] = new Thread(() -> {
+                WorkStealingDeque<Integer> own = deques[self];
+                long sink = 0;
+                while (true) {
+                    Integer job = own.pop();
+                    if (job == null) {
+                        int victim = ThreadLocalRandom.current().nextInt(workers);
+                        job = deques[victim].steal();
+                    }
+                    if (job == null) {
+                        if (done.sum() == total) {
+                            break;
+                        }
+                        Thread.onSpinWait();
+                        continue;
+                    }
+                    sink += work(job);
+                    if (job > 0) {
+                        own.push(job - 1);
+                        own.push(job - 1);
+                    }
+                    done.increment();
+                }
+                if (sink == 42) {
+                    StdOut.print("");
+                }
+            });
+        }
+        return time(threads, total);
+    }
+
+    // the same fork tree scheduled through one shared ConcurrentLinkedDeque
+    private static double benchCentral(int workers, int depth) throws InterruptedException {
+        long total = (1L << (depth + 1)) - 1;
+        LongAdder done = new LongAdder();
+        ConcurrentLinkedDeque<Integer> shared = new ConcurrentLinkedDeque<>();
+        shared.addFirst(depth);
+        Thread[] threads = new Thread[workers];
+        for (int w = 0; w < workers; w++) {
+            threads[w] = new Thread(() -> {
+                long sink = 0;
+                while (true) {
+                    Integer job = shared.pollFirst();
+                    if (job == null) {
+                        if (done.sum() == total) {
+                            break;
+                        }
+                        Thread.onSpinWait();
+                        continue;
+                    }
+                    sink += work(job);
+                    if (job > 0) {
+                        shared.addFirst(job - 1);
+                        shared.addFirst(job - 1);
+                    }
+                    done.increment();
+                }
+                if (sink == 42) {
+                    StdOut.print("");
+                }
+            });
+        }
+        return time(threads, total);
+    }
+
+    private static double time(Thread[] threads, long jobs) throws InterruptedException {
+        long start = System.nanoTime();
+        for (Thread t : threads) {
+            t.start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        return jobs / ((System.nanoTime() - start) / 1e9);
+    }
+
+    // unit testing and throughput comparison
+    public static void main(String[] args) throws InterruptedException {
+        WorkStealingDeque<Integer> deque = new WorkStealingDeque<>();
+        for (int i = 0; i < 40; i++) {
+            deque.push(i);
+        }
+        StdOut.println(deque.size());
+        StdOut.println(deque.steal() + " " + deque.steal());
+        StdOut.println(deque.pop() + " " + deque.pop());
+        StdOut.println(deque.size());
+
+        int workers = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int depth = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        for (int round = 0; round < 3; round++) {
+            double stealing = benchStealing(workers, depth);
+            double central = benchCentral(workers, depth);
+            StdOut.printf("workers=%d  work-stealing %.0f jobs/s  ConcurrentLinkedDeque %.0f jobs/s%n",
+                          workers, stealing, central);
+        }
+    }
+}